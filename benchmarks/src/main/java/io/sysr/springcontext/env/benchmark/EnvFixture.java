@@ -0,0 +1,112 @@
+package io.sysr.springcontext.env.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A directory of generated <code>.env</code> files used by the benchmark.
+ *
+ * <p>
+ * Every file declares <code>BENCH_F{file}_K{key}</code> variables. Every tenth
+ * variable references the previous one so that the resolver is exercised as
+ * well as the parser.
+ * </p>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+final class EnvFixture implements AutoCloseable {
+    private final Path directory;
+    private final int fileCount;
+    private final int keysPerFile;
+
+    private EnvFixture(Path directory, int fileCount, int keysPerFile) {
+        this.directory = directory;
+        this.fileCount = fileCount;
+        this.keysPerFile = keysPerFile;
+    }
+
+    /**
+     * Generates a new fixture in a temporary directory.
+     *
+     * @param fileCount   The number of <code>.env</code> files to generate.
+     * @param keysPerFile The number of variables declared in each file.
+     * @return The generated fixture.
+     * @throws IOException If the files cannot be written.
+     */
+    static EnvFixture generate(int fileCount, int keysPerFile) throws IOException {
+        Path directory = Files.createTempDirectory("springcontext-env-bench");
+        for (int f = 0; f < fileCount; f++) {
+            StringBuilder content = new StringBuilder();
+            for (int k = 0; k < keysPerFile; k++) {
+                content.append(key(f, k)).append('=');
+                if (k > 0 && k % 10 == 0) {
+                    content.append("${").append(key(f, k - 1)).append("}/").append(k);
+                } else {
+                    content.append("value-").append(f).append('-').append(k);
+                }
+                content.append('\n');
+            }
+            String fileName = f == 0 ? ".env" : ".env-" + f;
+            Files.writeString(directory.resolve(fileName), content, StandardCharsets.UTF_8);
+        }
+        return new EnvFixture(directory, fileCount, keysPerFile);
+    }
+
+    /**
+     * Returns the variable name declared in the <code>.env</code> files.
+     *
+     * @param file The file index.
+     * @param key  The key index within the file.
+     * @return The dotenv variable name.
+     */
+    static String key(int file, int key) {
+        return "BENCH_F%d_K%d".formatted(file, key);
+    }
+
+    /**
+     * Returns the relaxed property name Spring configuration uses for a variable.
+     *
+     * @param file The file index.
+     * @param key  The key index within the file.
+     * @return The relaxed property name.
+     */
+    static String propertyName(int file, int key) {
+        return "bench.f%d.k%d".formatted(file, key);
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    int fileCount() {
+        return fileCount;
+    }
+
+    int keysPerFile() {
+        return keysPerFile;
+    }
+
+    long totalBytes() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.mapToLong(path -> path.toFile().length()).sum();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
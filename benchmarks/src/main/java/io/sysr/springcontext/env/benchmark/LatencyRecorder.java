@@ -0,0 +1,78 @@
+package io.sysr.springcontext.env.benchmark;
+
+import java.util.Arrays;
+
+/**
+ * Records latency samples in nanoseconds and reports their percentiles.
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+final class LatencyRecorder {
+    private long[] samples;
+    private int count;
+
+    /**
+     * Constructs a new {@code LatencyRecorder}.
+     *
+     * @param expectedSamples The expected number of samples.
+     */
+    LatencyRecorder(int expectedSamples) {
+        this.samples = new long[Math.max(16, expectedSamples)];
+    }
+
+    /**
+     * Records a single latency sample.
+     *
+     * @param nanos The measured latency in nanoseconds.
+     */
+    void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    /**
+     * Returns the number of recorded samples.
+     *
+     * @return The number of samples.
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Returns the largest recorded sample. With a few boots per scenario, a high
+     * percentile would be the maximum under another name.
+     *
+     * @return The largest latency in nanoseconds, or {@code 0} if nothing was
+     *         recorded.
+     */
+    long max() {
+        long max = 0;
+        for (int i = 0; i < count; i++) {
+            max = Math.max(max, samples[i]);
+        }
+        return max;
+    }
+
+    /**
+     * Returns the given percentile of the recorded samples using the nearest rank
+     * method.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The latency at the given percentile in nanoseconds, or {@code 0} if
+     *         nothing was recorded.
+     */
+    long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sorted[Math.min(count, Math.max(1, rank)) - 1];
+    }
+}
@@ -0,0 +1,281 @@
+package io.sysr.springcontext.env.benchmark;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigUtils;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.configuration.SpringContextEnvApplicationContextInitializer;
+
+/**
+ * End-to-end benchmark of the cost {@link SpringContextEnvApplicationContextInitializer}
+ * adds to a Spring context refresh and to the property lookups made once the
+ * context is ready.
+ *
+ * <p>
+ * For every combination of env file count and keys per file, a fixture of
+ * generated <code>.env</code> files is written and a minimal
+ * {@link GenericApplicationContext} and a Spring Boot {@link SpringApplication}
+ * are booted with and without the initializer. The benchmark reports the
+ * median and the maximum time-to-ready, the bytes allocated per boot, the
+ * latency percentiles of {@code Environment}, {@link Binder} and
+ * {@code @Value} style lookups and the bytes allocated per lookup.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>
+ * ./gradlew :benchmarks:run --args="--files=1,4,16 --keys=10,100,1000 --iterations=20 --lookups=30000"
+ * </pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class StartupBenchmark {
+    private static final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+    /**
+     * Sink for the lookup results so that they cannot be optimized away.
+     */
+    private static volatile int blackhole;
+
+    private final int[] fileCounts;
+    private final int[] keyCounts;
+    private final int warmupIterations;
+    private final int iterations;
+    private final int lookups;
+
+    private StartupBenchmark(Map<String, String> options) {
+        this.fileCounts = parseInts(options.getOrDefault("files", "1,4,16"));
+        this.keyCounts = parseInts(options.getOrDefault("keys", "10,100,1000"));
+        this.warmupIterations = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        this.iterations = Integer.parseInt(options.getOrDefault("iterations", "20"));
+        this.lookups = Integer.parseInt(options.getOrDefault("lookups", "30000"));
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * <p>
+     * Supported options are <code>--files</code> and <code>--keys</code> (comma
+     * separated lists), <code>--warmup</code>, <code>--iterations</code> and
+     * <code>--lookups</code>.
+     * </p>
+     *
+     * @param args The benchmark options.
+     * @throws Exception If a fixture cannot be generated.
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+        new StartupBenchmark(options).run(System.out);
+    }
+
+    private void run(PrintStream out) throws Exception {
+        String userDir = System.getProperty("user.dir");
+        out.printf("%-28s %10s %10s %12s | %-22s | %-22s | %-22s | %10s %6s%n", "scenario", "ready p50", "ready max",
+                "alloc/boot", "env p50/p99/p99.9 ns", "binder p50/p99/p99.9 ns", "@Value p50/p99/p99.9 ns",
+                "alloc/look", "hits");
+        try {
+            for (int fileCount : fileCounts) {
+                for (int keyCount : keyCounts) {
+                    try (EnvFixture fixture = EnvFixture.generate(fileCount, keyCount)) {
+                        // The initializer discovers the .env files from the JVM invocation directory
+                        System.setProperty("user.dir", fixture.directory().toString());
+                        out.printf("%n# files=%d keys/file=%d bytes=%d%n", fileCount, keyCount, fixture.totalBytes());
+                        for (Scenario scenario : Scenario.values()) {
+                            out.println(measure(scenario, fixture));
+                        }
+                    }
+                }
+            }
+        } finally {
+            System.setProperty("user.dir", userDir);
+        }
+    }
+
+    private String measure(Scenario scenario, EnvFixture fixture) {
+        for (int i = 0; i < warmupIterations; i++) {
+            try (ConfigurableApplicationContext context = scenario.boot()) {
+                lookup(context, fixture, null);
+            }
+        }
+
+        LatencyRecorder ready = new LatencyRecorder(iterations);
+        LatencyRecorder[] lookupLatencies = {
+                new LatencyRecorder(lookups), new LatencyRecorder(lookups), new LatencyRecorder(lookups) };
+        long bootAllocations = 0;
+        long lookupAllocations = 0;
+        long hits = 0;
+        for (int i = 0; i < iterations; i++) {
+            long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            ConfigurableApplicationContext context = scenario.boot();
+            ready.record(System.nanoTime() - start);
+            bootAllocations += threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            try (context) {
+                // Only the last iteration records lookup latencies, the earlier ones keep the JIT warm
+                boolean recorded = i == iterations - 1;
+                allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+                hits = lookup(context, fixture, recorded ? lookupLatencies : null);
+                if (recorded) {
+                    lookupAllocations = threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                }
+            }
+        }
+
+        return "%-28s %8.2fms %8.2fms %10dKB | %-22s | %-22s | %-22s | %9dB %5.1f%%".formatted(scenario.label,
+                ready.percentile(50) / 1e6, ready.max() / 1e6, bootAllocations / iterations / 1024,
+                percentiles(lookupLatencies[0]), percentiles(lookupLatencies[1]), percentiles(lookupLatencies[2]),
+                lookupAllocations / Math.max(1, lookups), 100.0 * hits / Math.max(1, lookups));
+    }
+
+    /**
+     * Runs the configured number of random lookups against a ready context,
+     * rotating between environment, binder and {@code @Value} placeholder
+     * lookups.
+     *
+     * @param context   The refreshed application context.
+     * @param fixture   The fixture the context was booted with.
+     * @param latencies The recorders of the three lookup kinds, or {@code null}
+     *                  when the lookups are not recorded.
+     * @return The number of lookups that found a value.
+     */
+    private long lookup(ConfigurableApplicationContext context, EnvFixture fixture, LatencyRecorder[] latencies) {
+        ConfigurableEnvironment environment = context.getEnvironment();
+        ConfigurableBeanFactory beanFactory = context.getBeanFactory();
+        Binder binder = Binder.get(environment);
+
+        // Build the names up front so that only the lookups themselves are measured
+        Random random = new Random(42);
+        String[] names = new String[lookups];
+        String[] placeholders = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            names[i] = EnvFixture.propertyName(random.nextInt(fixture.fileCount()),
+                    random.nextInt(fixture.keysPerFile()));
+            placeholders[i] = "${" + names[i] + ":}";
+        }
+
+        long hits = 0;
+        int sink = 0;
+        for (int i = 0; i < lookups; i++) {
+            long start = System.nanoTime();
+            String value = switch (i % 3) {
+                case 0 -> environment.getProperty(names[i]);
+                case 1 -> binder.bind(names[i], String.class).orElse(null);
+                default -> beanFactory.resolveEmbeddedValue(placeholders[i]);
+            };
+            long elapsed = System.nanoTime() - start;
+            if (Objects.nonNull(latencies)) {
+                latencies[i % 3].record(elapsed);
+            }
+            if (Objects.nonNull(value) && !value.isEmpty()) {
+                hits++;
+                sink += value.length();
+            }
+        }
+        blackhole = sink;
+        return hits;
+    }
+
+    private static String percentiles(LatencyRecorder recorder) {
+        return "%d/%d/%d".formatted(recorder.percentile(50), recorder.percentile(99), recorder.percentile(99.9));
+    }
+
+    private static int[] parseInts(String value) {
+        return Arrays.stream(value.split(",")).map(String::strip).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * The contexts booted by the benchmark.
+     */
+    private enum Scenario {
+        GENERIC_CONTEXT("GenericApplicationContext", false, false),
+        GENERIC_CONTEXT_DOTENV("GenericApplicationContext+env", false, true),
+        SPRING_APPLICATION("SpringApplication", true, false),
+        SPRING_APPLICATION_DOTENV("SpringApplication+env", true, true);
+
+        private final String label;
+        private final boolean springBoot;
+        private final boolean dotenv;
+
+        Scenario(String label, boolean springBoot, boolean dotenv) {
+            this.label = label;
+            this.springBoot = springBoot;
+            this.dotenv = dotenv;
+        }
+
+        ConfigurableApplicationContext boot() {
+            if (springBoot) {
+                SpringApplication application = new SpringApplication(BenchmarkConfiguration.class);
+                application.setWebApplicationType(WebApplicationType.NONE);
+                application.setBannerMode(Banner.Mode.OFF);
+                application.setLogStartupInfo(false);
+                application.setRegisterShutdownHook(false);
+                if (!dotenv) {
+                    // The post processor and the initializer are registered through spring.factories;
+                    // an empty source under the dotenv name makes both skip loading for the baseline
+                    StandardEnvironment environment = new StandardEnvironment();
+                    environment.getPropertySources()
+                            .addLast(new MapPropertySource(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME, Map.of()));
+                    application.setEnvironment(environment);
+                }
+                return application.run();
+            }
+
+            GenericApplicationContext context = new GenericApplicationContext();
+            if (dotenv) {
+                new SpringContextEnvApplicationContextInitializer().initialize(context);
+            }
+            AnnotationConfigUtils.registerAnnotationConfigProcessors(context);
+            context.registerBean(BenchmarkConfiguration.class);
+            context.refresh();
+            return context;
+        }
+    }
+
+    /**
+     * The configuration booted in every scenario.
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class BenchmarkConfiguration {
+        @Bean
+        ValueHolder valueHolder(@Value("${bench.f0.k1:}") String first, @Value("${bench.f0.k9:}") String second) {
+            return new ValueHolder(first, second);
+        }
+    }
+
+    /**
+     * A bean injected with dotenv values at refresh time.
+     *
+     * @param first  The first injected value.
+     * @param second The second injected value.
+     */
+    record ValueHolder(String first, String second) {
+    }
+}
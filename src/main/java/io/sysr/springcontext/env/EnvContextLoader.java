@@ -4,29 +4,48 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 
+import io.sysr.springcontext.env.diagnostics.EnvLoadDiagnostics;
+import io.sysr.springcontext.env.diagnostics.EnvLoadIssue;
 import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+import io.sysr.springcontext.env.file.FileValueCache;
+import io.sysr.springcontext.env.snapshot.SharedEnvSnapshot;
+import io.sysr.springcontext.env.store.LayeredPropertyStore;
+import io.sysr.springcontext.env.store.PersistentHashMap;
 
 /**
  * The {@code EnvContextLoader} class is responsible for loading environment
@@ -51,9 +70,76 @@ import io.sysr.springcontext.env.exception.EnvContextLoaderException;
  *
  * // Access a property
  * String dbUrl = properties.getProperty("DATABASE_URL");
+ *
+ * // Or load the .env files of a given directory only
+ * EnvContextLoader tenantLoader = new EnvContextLoader(Path.of("/etc/tenant-a"));
+ * tenantLoader.load();
  * }</pre>
  *
  * <p>
+ * The configuration of a loader is immutable and every call to
+ * {@link #load()} works on its own state, so a single instance can safely
+ * serve concurrent and repeated loads.
+ * </p>
+ *
+ * <p>
+ * Each load is recorded as {@link StartupStep}s of the
+ * {@link ApplicationStartup} set with
+ * {@link #setApplicationStartup(ApplicationStartup)}: a
+ * <code>springcontext.env.load</code> step holding the
+ * <code>springcontext.env.discover</code> step and a
+ * <code>springcontext.env.parse</code> step per file, which itself holds the
+ * <code>springcontext.env.resolve</code> step of the file. The steps are
+ * tagged with the file names, the key counts and the file sizes in bytes.
+ * </p>
+ *
+ * <p>
+ * The variables skipped by a load, the missing files and directories are
+ * recorded as {@link EnvLoadDiagnostics} rather than logged one by one: each
+ * load logs a single summary with the count of each kind of issue and a
+ * sample of the variable names, at most once every
+ * {@value #DIAGNOSTICS_LOG_INTERVAL_SECONDS} seconds across all the loaders at
+ * the warning level. The issues of the last load are returned by
+ * {@link #getDiagnostics()}.
+ * </p>
+ *
+ * <p>
+ * An environment file can pull the variables of another file in with an
+ * <code>#include &lt;file&gt;</code> line, the path being relative to the
+ * including file. The included variables are merged before the ones of the
+ * including file, which override them, and the variables are resolved over
+ * the merged content. Every file is read and parsed at most once per load,
+ * however many files include it, and the parsed files are kept across loads
+ * until their size or modification time changes. An include cycle fails the
+ * load with an {@link EnvContextLoaderException}.
+ * </p>
+ *
+ * <pre>{@code
+ * # .env-dev
+ * #include <common.env>
+ * DATABASE_URL=jdbc:postgresql://localhost/${DB_NAME}
+ * }</pre>
+ *
+ * <p>
+ * References to files, such as <code>${file:/run/secrets/tls.crt}</code>, are
+ * not read by the loader: they are kept in the loaded values and replaced with
+ * the content of the file when the value is looked up through a
+ * {@link io.sysr.springcontext.env.configuration.DotEnvPropertySource}, see
+ * {@link FileValueCache}. A relative reference, such as
+ * <code>${file:secrets/api.key}</code>, is resolved against the directory of
+ * the file declaring it.
+ * </p>
+ *
+ * <p>
+ * Services reading a few dozen keys of large shared files can restrict the
+ * loads to the keys they need with {@link #setRequiredKeys(Predicate)}: the
+ * required keys of every file and the keys their values reference, directly
+ * or through other keys, in the same or in an earlier file, are resolved and
+ * loaded. The other keys are neither validated, resolved nor loaded, and are
+ * reported by {@link #getUnusedKeys()}.
+ * </p>
+ *
+ * <p>
  * <b>Note:</b> Ensure that the dotenv properties configuration file
  * (<b>dotenv.properties</b>) is placed in the resources foler. This only
  * applies if you have the <b>.env</b> file that contains the environment
@@ -67,31 +153,164 @@ import io.sysr.springcontext.env.exception.EnvContextLoaderException;
 public class EnvContextLoader {
     private static final Logger logger = LoggerFactory.getLogger(EnvContextLoader.class);
     /**
-     * A concurrent map storing all loaded and resolved environment properties.
+     * The name of the single layer holding the properties mapped from a shared
+     * snapshot.
+     */
+    public static final String SHARED_SNAPSHOT_LAYER = "shared-snapshot";
+    /**
+     * The directory path where the environment files are located, or
+     * {@code null} when the directories are discovered on each load.
+     */
+    private final Path envDirPath;
+    /**
+     * The names of the environment files to load from {@link #envDirPath}. When
+     * empty, every file matching the <code>.env</code> naming pattern is loaded.
+     */
+    private final Set<String> envFileNames;
+    /**
+     * An immutable snapshot of all loaded and resolved environment properties,
+     * published at the end of each successful load.
      */
-    private final ConcurrentHashMap<String, String> propertiesMap = new ConcurrentHashMap<>();
+    private volatile Map<String, String> loadedProperties = Map.of();
     /**
-     * A set of environment files to load.
-     * These are specified in the dotenv.properties file.
+     * The layered properties of the last load, with a layer per environment
+     * file, or {@code null} when the properties were mapped from a shared
+     * snapshot.
      */
-    private final Set<String> envFilesToLoad = new HashSet<>();
+    private volatile LayeredPropertyStore loadedStore = LayeredPropertyStore.empty();
     /**
-     * The directory path where the environment files are located.
+     * The application startup recording the steps of each load.
      */
-    private String ENV_DIR_PATH;
+    private volatile ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+    /**
+     * The parsed environment files, by absolute path, reused by the following
+     * loads as long as the size and the modification time of the file match.
+     */
+    private final Map<Path, ParsedEnvFile> parsedEnvFiles = new ConcurrentHashMap<>();
+    /**
+     * The issues found by the last load.
+     */
+    private volatile EnvLoadDiagnostics loadedDiagnostics = EnvLoadDiagnostics.empty();
+    /**
+     * The keys required by the application, or {@code null} when every key is
+     * loaded.
+     */
+    private volatile Predicate<String> requiredKeys;
+    /**
+     * The keys skipped by the last load because they are not required.
+     */
+    private volatile Set<String> unusedKeys = Set.of();
+    /**
+     * The fingerprint of the source files of the last load, taken before they
+     * were read.
+     */
+    private volatile long loadedFingerprint;
+    /**
+     * The number of unused keys listed in the log of a load.
+     */
+    private static final int UNUSED_KEYS_SAMPLE_SIZE = 10;
+    /**
+     * The minimum interval between two issue summaries logged at the warning
+     * level. The summaries of the loads in between are logged at the debug
+     * level.
+     */
+    static final long DIAGNOSTICS_LOG_INTERVAL_SECONDS = 10;
+    private static final AtomicLong lastDiagnosticsLogNanos = new AtomicLong(
+            System.nanoTime() - TimeUnit.SECONDS.toNanos(DIAGNOSTICS_LOG_INTERVAL_SECONDS));
+    private static final AtomicInteger suppressedDiagnosticsLogs = new AtomicInteger();
     private static final Pattern ENV_FILE_NAME_PATTERN = Pattern.compile("^\\.env\\.?-?\\w*$");
     private static final Pattern VARIABLE_PATTERN_MATCHER = Pattern.compile("\\$\\{([^}]+)}");
     private static final Pattern VARIABLE_NAME_PATTERN = Pattern.compile("^[A-Za-z_][A-Za-z0-9_-]*$");
     private static final Pattern BAD_VARIABLE_PATTERN_MATCHER = Pattern.compile("\\$\\{\\s*\\}$|\\$\\{[^}]*$");
+    private static final Pattern INCLUDE_DIRECTIVE_PATTERN = Pattern
+            .compile("^\\s*#include\\s+(?:<([^>]+)>|\"([^\"]+)\"|(\\S+))\\s*$");
+    /**
+     * The maximum number of characters the references of a value may add to it
+     * once expanded. References which expand beyond it, for instance keys
+     * doubling the value of the previous key, fail the load instead of
+     * exhausting the heap. Literal values are not limited.
+     */
+    private static final int MAX_EXPANSION_LENGTH = 1 << 20;
+    /**
+     * The maximum number of characters the references of all the values of a
+     * load may add to them once expanded. It bounds the memory of many keys
+     * each referencing a large expansion, which the limit of a single value does
+     * not.
+     */
+    private static final long MAX_TOTAL_EXPANSION_LENGTH = 1L << 25;
 
     /**
-     * Constructs a new {@code EnvContextLoader} instance.
+     * Constructs a new {@code EnvContextLoader} instance which discovers the
+     * environment files on each load from the <code>dotenv.properties</code>
+     * file, the <code>ENV_DIR_PATH</code> system environment variable and the
+     * directory where the JVM is invoked.
      */
     public EnvContextLoader() {
         super();
+        this.envDirPath = null;
+        this.envFileNames = Set.of();
         logger.trace("Spring context dotenv loader initiated");
     }
 
+    /**
+     * Constructs a new {@code EnvContextLoader} instance which loads every
+     * <code>.env</code> file found in the given directory.
+     *
+     * @param envDirPath The directory containing the <code>.env</code> files.
+     */
+    public EnvContextLoader(Path envDirPath) {
+        this(envDirPath, Set.of());
+    }
+
+    /**
+     * Constructs a new {@code EnvContextLoader} instance which loads the given
+     * files from the given directory.
+     *
+     * @param envDirPath   The directory containing the environment files.
+     * @param envFileNames The names of the files to load. When empty, every
+     *                     <code>.env</code> file in the directory is loaded.
+     */
+    public EnvContextLoader(Path envDirPath, Set<String> envFileNames) {
+        super();
+        this.envDirPath = Objects.requireNonNull(envDirPath, "The env directory path must not be null");
+        this.envFileNames = Set.copyOf(envFileNames);
+        logger.trace("Spring context dotenv loader initiated for {}", envDirPath);
+    }
+
+    /**
+     * Sets the {@link ApplicationStartup} recording the steps of the following
+     * loads, typically the one of the application context being initialized.
+     *
+     * @param applicationStartup The application startup to record the steps to.
+     */
+    public void setApplicationStartup(ApplicationStartup applicationStartup) {
+        this.applicationStartup = Objects.requireNonNull(applicationStartup,
+                "The application startup must not be null");
+    }
+
+    /**
+     * Restricts the following loads to the keys required by the application and
+     * the keys they reference. Shared snapshots are always loaded in full, since
+     * other JVMs may require other keys.
+     *
+     * @param requiredKeys Whether a key, as declared in the environment files, is
+     *                     required, or {@code null} to load every key.
+     */
+    public void setRequiredKeys(Predicate<String> requiredKeys) {
+        this.requiredKeys = requiredKeys;
+    }
+
+    /**
+     * Retrieves the keys the last load skipped because they are neither required
+     * nor referenced by a required key.
+     *
+     * @return The sorted, unmodifiable set of the unused keys, empty when every
+     *         key is loaded.
+     */
+    public Set<String> getUnusedKeys() {
+        return unusedKeys;
+    }
+
     /**
      * Retrieves the loaded properties as a {@link java.util.Properties} object.
      *
@@ -100,7 +319,7 @@ public class EnvContextLoader {
      */
     public Properties getLoadedProperties() {
         Properties props = new Properties();
-        propertiesMap.entrySet().forEach(entry -> props.put(entry.getKey(), entry.getValue()));
+        props.putAll(loadedProperties);
         return props;
     }
 
@@ -110,81 +329,391 @@ public class EnvContextLoader {
      * <p>
      * It attempts to load variables from a user-provided file which is specified in
      * the <code>dotenv.properties</code> file or from <code>.env</code> files in
-     * the default root directory where JVM is invoked.
+     * the default root directory where JVM is invoked. When the loader was
+     * constructed with an explicit directory, only that directory is loaded.
+     * </p>
+     *
+     * <p>
+     * Each load runs in its own {@link LoadContext}, so concurrent or repeated
+     * calls on the same instance never share intermediate state. The result of a
+     * successful load replaces the previously loaded properties atomically.
      * </p>
      *
      * @throws EnvContextLoaderException if there is any error during the loading
      *                                   process.
      */
     public void load() {
+        LoadContext context = new LoadContext();
+        Predicate<String> required = requiredKeys;
+        StartupStep loadStep = applicationStartup.start("springcontext.env.load");
         try {
-            // Check if the user has provided the dotenv.properties file
-            String dotenvPropertiesPath = findEnvPropertiesFile();
-            if (Objects.nonNull(dotenvPropertiesPath)) {
-                setEnvFilesToLoad(dotenvPropertiesPath);
-                // Load from the ENV_DIR_PATH specifired in the dotenv.properties file
-                if (Objects.nonNull(ENV_DIR_PATH) && !ENV_DIR_PATH.isBlank()) {
-                    formatPath();
-                    loadEnvFilesFromDirectory();
-                }
+            discoverEnvFiles(context);
+            context.fingerprint = SharedEnvSnapshot.fingerprint(collectSourceFiles(context));
+            if (Objects.nonNull(required)) {
+                selectKeysToLoad(context, required);
             }
+            loadEnvFiles(context);
+        } catch (Exception e) {
+            handleLoadException(context, e);
+        } finally {
+            loadStep.tag("files", String.valueOf(context.envFiles.size()))
+                    .tag("keys", String.valueOf(context.store.size()))
+                    .tag("unused", String.valueOf(context.unusedKeys.size()))
+                    .end();
+            publishDiagnostics(context);
+        }
+        loadedStore = context.store;
+        loadedProperties = context.store.asMap();
+        unusedKeys = Collections.unmodifiableSet(context.unusedKeys);
+        loadedFingerprint = context.fingerprint;
+        logger.info("Successfully loaded {} properties from {}", loadedProperties.size(),
+                context.envFiles.stream().map(path -> path.getFileName().toString()).toList());
+        if (!context.unusedKeys.isEmpty()) {
+            logger.info("Skipped {} keys not required by the application: {}{}", context.unusedKeys.size(),
+                    context.unusedKeys.stream().limit(UNUSED_KEYS_SAMPLE_SIZE).toList(),
+                    context.unusedKeys.size() > UNUSED_KEYS_SAMPLE_SIZE ? " ..." : "");
+        }
+    }
 
-            // Look for System.env for ENV_DIR_PATH.
-            ENV_DIR_PATH = System.getenv("ENV_DIR_PATH");
-            if (Objects.nonNull(ENV_DIR_PATH) && !ENV_DIR_PATH.isBlank()) {
-                formatPath();
-                loadEnvFilesFromDirectory();
-            }
+    /**
+     * Computes the fingerprint of the environment files the next load would
+     * read, and of the files they include, from their paths, sizes and
+     * modification times, without loading them.
+     *
+     * <p>
+     * Comparing two fingerprints tells whether the files changed in between, for
+     * instance while a JVM was checkpointed.
+     * </p>
+     *
+     * @return The fingerprint of the environment files.
+     * @throws EnvContextLoaderException if the files cannot be discovered.
+     */
+    public long fingerprintSourceFiles() {
+        LoadContext context = new LoadContext();
+        try {
+            collectEnvFiles(context);
+        } catch (Exception e) {
+            handleLoadException(context, e);
+        }
+        return SharedEnvSnapshot.fingerprint(collectSourceFiles(context));
+    }
+
+    /**
+     * Returns the fingerprint of the source files of the last load, as
+     * {@link #fingerprintSourceFiles()} computed it right before the files were
+     * read.
+     *
+     * @return The fingerprint of the loaded files, or {@code 0} if nothing was
+     *         loaded yet.
+     */
+    public long getLoadedFingerprint() {
+        return loadedFingerprint;
+    }
+
+    /**
+     * Releases what the loader keeps between loads: the parsed files are
+     * dropped, and properties mapped from a shared snapshot are copied to the
+     * heap, so that the loader no longer holds any file mapping. The loaded
+     * properties are kept.
+     *
+     * <p>
+     * Call it before the JVM is checkpointed, or to reclaim memory once loading
+     * is over.
+     * </p>
+     */
+    public void releaseResources() {
+        parsedEnvFiles.clear();
+        if (Objects.isNull(loadedStore)) {
+            loadedProperties = Map.copyOf(loadedProperties);
+        }
+    }
+
+    /**
+     * Retrieves the issues found by the last load, successful or not, such as
+     * the variables which were skipped because they are invalid or undefined.
+     *
+     * @return The diagnostics of the last load.
+     */
+    public EnvLoadDiagnostics getDiagnostics() {
+        return loadedDiagnostics;
+    }
 
-            // Default JVM invocation directory
-            ENV_DIR_PATH = System.getProperty("user.dir");
-            // Load from the default root directory
-            loadEnvFilesFromDirectory();
+    /**
+     * Initiates the loading process of environment variables through a snapshot
+     * shared by all the JVMs of the host.
+     *
+     * <p>
+     * The environment files are discovered as in {@link #load()} and
+     * fingerprinted together with the files they include. When the snapshot file holds a snapshot of the same
+     * fingerprint, it is mapped read-only and the loaded properties are looked up
+     * directly against the mapped data, without parsing or resolving any file.
+     * Otherwise the files are loaded normally and the result is published to the
+     * snapshot file for the other JVMs.
+     * </p>
+     *
+     * <p>
+     * <b>Note:</b> variables that fall back to the system environment or to the
+     * system properties are resolved by the publishing JVM. Only share a snapshot
+     * between JVMs started with the same environment.
+     * </p>
+     *
+     * @param snapshotFile The path of the shared snapshot file.
+     * @throws EnvContextLoaderException if there is any error during the loading
+     *                                   process.
+     * @see SharedEnvSnapshot
+     */
+    public void loadShared(Path snapshotFile) {
+        LoadContext context = new LoadContext();
+        StartupStep loadStep = applicationStartup.start("springcontext.env.load");
+        try {
+            loadShared(context, snapshotFile, loadStep);
+        } finally {
+            loadStep.end();
+            publishDiagnostics(context);
+        }
+    }
+
+    /**
+     * Maps the shared snapshot of the discovered files, or loads the files and
+     * publishes their snapshot.
+     *
+     * @param context      The context of the current load.
+     * @param snapshotFile The path of the shared snapshot file.
+     * @param loadStep     The startup step of the load, tagged with whether the
+     *                     snapshot was mapped or the files were loaded.
+     */
+    private void loadShared(LoadContext context, Path snapshotFile, StartupStep loadStep) {
+        try {
+            discoverEnvFiles(context);
         } catch (Exception e) {
-            if (e instanceof FileNotFoundException || e instanceof NoSuchFieldException) {
-                logger.warn(e.getLocalizedMessage());
-            } else {
-                throw new EnvContextLoaderException(e.getLocalizedMessage(), e);
+            handleLoadException(context, e);
+        }
+        loadStep.tag("files", String.valueOf(context.envFiles.size()));
+
+        long fingerprint = SharedEnvSnapshot.fingerprint(collectSourceFiles(context));
+        Optional<SharedEnvSnapshot> snapshot = SharedEnvSnapshot.open(snapshotFile, fingerprint);
+        if (snapshot.isPresent()) {
+            loadStep.tag("snapshot", "mapped").tag("keys", String.valueOf(snapshot.get().size()));
+            loadedStore = null;
+            loadedProperties = snapshot.get().asMap();
+            unusedKeys = Set.of();
+            loadedFingerprint = fingerprint;
+            logger.info("Successfully mapped {} properties from the shared snapshot {}", snapshot.get().size(),
+                    snapshotFile);
+            return;
+        }
+
+        try {
+            loadEnvFiles(context);
+        } catch (Exception e) {
+            handleLoadException(context, e);
+        }
+        Map<String, String> properties = context.store.asMap();
+        loadStep.tag("snapshot", "loaded").tag("keys", String.valueOf(properties.size()));
+        loadedStore = context.store;
+        loadedProperties = properties;
+        unusedKeys = Set.of();
+        loadedFingerprint = fingerprint;
+        try {
+            SharedEnvSnapshot.publish(snapshotFile, fingerprint, properties);
+            logger.info("Published {} properties to the shared snapshot {}", properties.size(), snapshotFile);
+        } catch (IOException e) {
+            logger.warn("The shared snapshot {} could not be published: {}", snapshotFile, e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Retrieves a single loaded property without copying the loaded properties.
+     *
+     * @param key The name of the property.
+     * @return The value of the property, or {@code null} if it is not loaded.
+     */
+    public String getProperty(String key) {
+        return loadedProperties.get(key);
+    }
+
+    /**
+     * Retrieves the loaded properties as an immutable {@link LayeredPropertyStore}
+     * version with a layer per environment file, named after the file path, in
+     * load order. The layers keep which file supplied each property, and new
+     * versions with other layers or runtime overrides can be derived from it
+     * without copying the loaded properties.
+     *
+     * <p>
+     * Shared snapshots do not record layers: when {@link #loadShared(Path)}
+     * mapped a snapshot, the returned store holds the properties in a single
+     * {@link #SHARED_SNAPSHOT_LAYER} layer.
+     * </p>
+     *
+     * @return The layered properties of the last load.
+     */
+    public LayeredPropertyStore getLayeredProperties() {
+        LayeredPropertyStore store = loadedStore;
+        if (Objects.isNull(store)) {
+            return LayeredPropertyStore.empty().withLayer(SHARED_SNAPSHOT_LAYER, loadedProperties);
+        }
+        return store;
+    }
+
+    /**
+     * Publishes the issues found by a load and logs their summary. The summary
+     * is logged at the warning level at most once every
+     * {@value #DIAGNOSTICS_LOG_INTERVAL_SECONDS} seconds, and at the debug level
+     * otherwise.
+     *
+     * @param context The context of the load.
+     */
+    private void publishDiagnostics(LoadContext context) {
+        EnvLoadDiagnostics diagnostics = context.diagnostics.build();
+        loadedDiagnostics = diagnostics;
+        if (!diagnostics.hasIssues()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastDiagnosticsLogNanos.get();
+        if (now - last >= TimeUnit.SECONDS.toNanos(DIAGNOSTICS_LOG_INTERVAL_SECONDS)
+                && lastDiagnosticsLogNanos.compareAndSet(last, now)) {
+            int suppressed = suppressedDiagnosticsLogs.getAndSet(0);
+            logger.warn("{} issues found while loading the env files: {}{}", diagnostics.count(),
+                    diagnostics.summary(EnvLoadDiagnostics.DEFAULT_SAMPLE_SIZE),
+                    suppressed > 0 ? " (%d earlier summaries logged at debug level)".formatted(suppressed) : "");
+        } else {
+            suppressedDiagnosticsLogs.incrementAndGet();
+            logger.debug("{} issues found while loading the env files: {}", diagnostics.count(),
+                    diagnostics.summary(EnvLoadDiagnostics.DEFAULT_SAMPLE_SIZE));
+        }
+    }
+
+    /**
+     * Handles an exception raised while loading. Missing files are only
+     * recorded, everything else is rethrown as an
+     * {@link EnvContextLoaderException}.
+     *
+     * @param context The context of the current load.
+     * @param e       The exception raised while loading.
+     * @throws EnvContextLoaderException if the exception is not a missing file.
+     */
+    private void handleLoadException(LoadContext context, Exception e) {
+        if (e instanceof FileNotFoundException || e instanceof NoSuchFileException
+                || e instanceof NoSuchFieldException) {
+            context.diagnostics.record(EnvLoadIssue.Kind.MISSING_FILE, e.getLocalizedMessage(), null);
+        } else {
+            throw new EnvContextLoaderException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * Discovers the environment files to load. When the loader was constructed
+     * with an explicit directory, only that directory is searched.
+     *
+     * @param context The context of the current load.
+     * @throws URISyntaxException If the <code>dotenv.properties</code> resource
+     *                            URL syntax is incorrect.
+     * @throws IOException        If an I/O error occurs reading the
+     *                            <code>dotenv.properties</code> file.
+     */
+    private void discoverEnvFiles(LoadContext context) throws URISyntaxException, IOException {
+        StartupStep discoverStep = applicationStartup.start("springcontext.env.discover");
+        try {
+            collectEnvFiles(context);
+        } finally {
+            discoverStep.tag("files", () -> context.envFiles.stream()
+                    .map(path -> path.getFileName().toString()).toList().toString())
+                    .end();
+        }
+    }
+
+    /**
+     * Collects the environment files to load from the configured directory, or
+     * from the <code>dotenv.properties</code> file, the <code>ENV_DIR_PATH</code>
+     * system environment variable and the JVM invocation directory.
+     *
+     * @param context The context of the current load.
+     * @throws URISyntaxException If the <code>dotenv.properties</code> resource
+     *                            URL syntax is incorrect.
+     * @throws IOException        If an I/O error occurs reading the
+     *                            <code>dotenv.properties</code> file.
+     */
+    private void collectEnvFiles(LoadContext context) throws URISyntaxException, IOException {
+        if (Objects.nonNull(envDirPath)) {
+            context.envFilesToLoad.addAll(envFileNames);
+            collectEnvFilesFromDirectory(context, envDirPath.toString());
+            return;
+        }
+
+        // Check if the user has provided the dotenv.properties file
+        String dotenvPropertiesPath = findEnvPropertiesFile();
+        if (Objects.nonNull(dotenvPropertiesPath)) {
+            String dirPath = setEnvFilesToLoad(context, dotenvPropertiesPath);
+            // Load from the ENV_DIR_PATH specifired in the dotenv.properties file
+            if (Objects.nonNull(dirPath) && !dirPath.isBlank()) {
+                collectEnvFilesFromDirectory(context, formatPath(dirPath));
             }
+        } else {
+            // Reported with the other issues of the load, in its rate limited summary
+            context.diagnostics.record(EnvLoadIssue.Kind.MISSING_PROPERTIES_FILE, "dotenv.properties", null);
+        }
+
+        // Look for System.env for ENV_DIR_PATH.
+        String dirPath = System.getenv("ENV_DIR_PATH");
+        if (Objects.nonNull(dirPath) && !dirPath.isBlank()) {
+            collectEnvFilesFromDirectory(context, formatPath(dirPath));
+        }
+
+        // Load from the default JVM invocation directory
+        collectEnvFilesFromDirectory(context, System.getProperty("user.dir"));
+    }
+
+    /**
+     * Parses the discovered environment files in discovery order.
+     *
+     * @param context The context of the current load.
+     */
+    private void loadEnvFiles(LoadContext context) {
+        for (Path path : context.envFiles) {
+            parse(context, path);
+            logger.debug("Successfully loaded properties from {}", path.getFileName());
         }
     }
 
     /**
      * Formats the path to the directory containing the <code>.env</code> files.
      * This is necessary for Windows paths.
+     *
+     * @param dirPath The directory path to format.
+     * @return The formatted directory path.
      */
-    private void formatPath() {
+    private String formatPath(String dirPath) {
         // Replace single backslashes with double backslashes for Windows paths
-        ENV_DIR_PATH = ENV_DIR_PATH.replace("\\", "\\\\");
+        return dirPath.replace("\\", "\\\\");
     }
 
     /**
-     * Loads <code>.env</code> files from the directory specified by the
-     * ENV_DIR_PATH.
+     * Collects the <code>.env</code> files to load from the given directory.
      *
-     * @throws EnvContextLoaderException if there is an error reading the directory
-     *                                   or loading the files.
+     * @param context The context of the current load.
+     * @param dirPath The directory containing the <code>.env</code> files.
+     * @throws EnvContextLoaderException if there is an error reading the
+     *                                   directory.
      */
-    private void loadEnvFilesFromDirectory() {
-        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Path.of(ENV_DIR_PATH))) {
+    private void collectEnvFilesFromDirectory(LoadContext context, String dirPath) {
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Path.of(dirPath))) {
             for (Path path : directoryStream) {
                 File file = path.toFile();
-                if (envFilesToLoad.isEmpty()) {
+                if (context.envFilesToLoad.isEmpty()) {
                     if (file.isFile() && file.getName().matches(ENV_FILE_NAME_PATTERN.pattern())) {
-                        parse(path.normalize());
-                        logger.info("Successfully loaded properties from {}", file.getName());
+                        context.envFiles.add(path.normalize());
                     }
                 } else {
-                    if (file.isFile() && envFilesToLoad.contains(file.getName())) {
-                        parse(path.normalize());
-                        logger.info("Successfully loaded properties from {}", file.getName());
+                    if (file.isFile() && context.envFilesToLoad.contains(file.getName())) {
+                        context.envFiles.add(path.normalize());
                     }
                 }
 
             }
         } catch (Exception e) {
             if (e instanceof IOException) {
-                logger.warn("The directory path: {} is not found or is invalid.", ENV_DIR_PATH);
+                context.diagnostics.record(EnvLoadIssue.Kind.MISSING_DIRECTORY, dirPath, null);
             } else
                 throw new EnvContextLoaderException(e.getLocalizedMessage(), e);
         }
@@ -194,25 +723,266 @@ public class EnvContextLoader {
      * Parses a <code>.env</code> file and resolves the environment variables within
      * it.
      *
-     * @param path The path to the <code>.env</code> file to be parsed.
+     * @param context The context of the current load.
+     * @param path    The path to the <code>.env</code> file to be parsed.
      * @throws EnvContextLoaderException if there is an error reading or parsing the
      *                                   file.
      */
-    private void parse(Path path) {
-        try (InputStreamReader reader = new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8)) {
-            Properties props = new Properties();
-            props.load(reader);
-            for (String key : props.stringPropertyNames()) {
-                String value = getResolvedValue(props, key);
-                if (Objects.nonNull(value) && !value.isBlank()) {
-                    propertiesMap.put(key.strip(), value.strip());
+    private void parse(LoadContext context, Path path) {
+        String fileName = path.getFileName().toString();
+        StartupStep parseStep = applicationStartup.start("springcontext.env.parse")
+                .tag("file", fileName)
+                .tag("bytes", () -> sizeOf(path));
+        try {
+            Set<Path> includedFiles = new LinkedHashSet<>();
+            Properties props = mergeEnvFile(context, path.toAbsolutePath().normalize(), new LinkedHashSet<>(),
+                    includedFiles);
+            parseStep.tag("keys", String.valueOf(props.size()))
+                    .tag("includes", String.valueOf(includedFiles.size() - 1));
+            // Values resolved while resolving a key are reused by the other keys of the file
+            context.resolvedValues.clear();
+            context.unresolvableNames.clear();
+            context.resolutionSteps = 0;
+            context.currentFile = fileName;
+            Set<String> keys = Objects.isNull(context.keysToLoad) ? props.stringPropertyNames()
+                    : context.keysToLoad.getOrDefault(path, Set.of());
+            PersistentHashMap<String, String> layer = PersistentHashMap.empty();
+            StartupStep resolveStep = applicationStartup.start("springcontext.env.resolve").tag("file", fileName);
+            try {
+                for (String key : keys) {
+                    String value = getResolvedValue(context, props, key);
+                    if (Objects.nonNull(value) && !value.isBlank()) {
+                        layer = layer.plus(key.strip(), value.strip());
+                    }
                 }
+            } finally {
+                resolveStep.tag("keys", String.valueOf(layer.size()))
+                        .tag("unresolved", String.valueOf(keys.size() - layer.size()))
+                        .tag("skipped", String.valueOf(props.size() - keys.size()))
+                        .tag("steps", String.valueOf(context.resolutionSteps))
+                        .end();
             }
+            context.store = context.store.withTopLayer(path.toString(), layer);
         } catch (Exception e) {
-            if (e instanceof FileNotFoundException || e instanceof NoSuchFieldException) {
-                logger.warn(e.getLocalizedMessage());
+            if (e instanceof FileNotFoundException || e instanceof NoSuchFileException
+                || e instanceof NoSuchFieldException) {
+                context.diagnostics.record(EnvLoadIssue.Kind.MISSING_FILE, fileName, null);
             } else
                 throw new EnvContextLoaderException(e.getLocalizedMessage(), e);
+        } finally {
+            parseStep.end();
+        }
+    }
+
+    /**
+     * Merges the variables of an environment file over the ones of the files it
+     * includes, depth first and in include order. A file included several times
+     * is merged once.
+     *
+     * @param context       The context of the current load.
+     * @param path          The absolute path of the file to merge.
+     * @param including     The files whose includes are being merged, to detect
+     *                      include cycles.
+     * @param mergedFiles   The files already merged.
+     * @return The merged, unresolved variables.
+     * @throws IOException               If an I/O error occurs reading a file.
+     * @throws EnvContextLoaderException if an include cycle is detected, or if an
+     *                                   included file is not found.
+     */
+    private Properties mergeEnvFile(LoadContext context, Path path, Set<Path> including, Set<Path> mergedFiles)
+            throws IOException {
+        Properties merged = new Properties();
+        including.add(path);
+        ParsedEnvFile parsed = readEnvFile(context, path);
+        for (Path include : parsed.includes()) {
+            if (including.contains(include)) {
+                throw new EnvContextLoaderException("Circular include detected on file %s.".formatted(include));
+            }
+            if (mergedFiles.contains(include)) {
+                continue;
+            }
+            if (!Files.isRegularFile(include)) {
+                throw new EnvContextLoaderException("The file %s included by %s is not found."
+                        .formatted(include, path.getFileName()));
+            }
+            merged.putAll(mergeEnvFile(context, include, including, mergedFiles));
+        }
+        merged.putAll(parsed.properties());
+        including.remove(path);
+        mergedFiles.add(path);
+        return merged;
+    }
+
+    /**
+     * Reads and parses an environment file, unless it was already parsed during
+     * this load, or by a previous load and has not changed since.
+     *
+     * @param context The context of the current load.
+     * @param path    The absolute path of the file.
+     * @return The parsed file.
+     * @throws IOException If an I/O error occurs reading the file.
+     */
+    private ParsedEnvFile readEnvFile(LoadContext context, Path path) throws IOException {
+        ParsedEnvFile parsed = context.parsedFiles.get(path);
+        if (Objects.nonNull(parsed)) {
+            return parsed;
+        }
+        long size = Files.size(path);
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        parsed = parsedEnvFiles.get(path);
+        if (Objects.isNull(parsed) || parsed.size() != size || parsed.modified() != modified) {
+            String content = Files.readString(path, StandardCharsets.UTF_8);
+            Properties props = new Properties();
+            props.load(new StringReader(content));
+            Map<String, String> properties = new HashMap<>();
+            for (String key : props.stringPropertyNames()) {
+                // Relative file references are relative to the file declaring them
+                properties.put(key, FileValueCache.resolveFileReferences(props.getProperty(key), path.getParent()));
+            }
+            parsed = new ParsedEnvFile(size, modified, Map.copyOf(properties), findIncludes(path, content));
+            parsedEnvFiles.put(path, parsed);
+        }
+        context.parsedFiles.put(path, parsed);
+        return parsed;
+    }
+
+    /**
+     * Selects the keys to load from each discovered file: the required keys and
+     * the keys their values reference, transitively. The files are walked from
+     * the last to the first, since the values of a file may reference the keys
+     * of the files loaded before it. Every other key is recorded as unused.
+     *
+     * @param context  The context of the current load.
+     * @param required Whether a key is required by the application.
+     * @throws IOException               If an I/O error occurs reading a file.
+     * @throws EnvContextLoaderException if an include cycle is detected, or if an
+     *                                   included file is not found.
+     */
+    private void selectKeysToLoad(LoadContext context, Predicate<String> required) throws IOException {
+        Map<Path, Set<String>> keysToLoad = new HashMap<>();
+        Set<String> referencedNames = new HashSet<>();
+        Set<String> loadedKeys = new HashSet<>();
+        Set<String> declaredKeys = new HashSet<>();
+        for (int i = context.envFiles.size() - 1; i >= 0; i--) {
+            Path path = context.envFiles.get(i);
+            Properties props;
+            try {
+                props = mergeEnvFile(context, path.toAbsolutePath().normalize(), new LinkedHashSet<>(),
+                        new HashSet<>());
+            } catch (FileNotFoundException | NoSuchFileException e) {
+                // The file is reported when it is parsed
+                continue;
+            }
+            Set<String> keys = new HashSet<>();
+            Deque<String> pending = new ArrayDeque<>();
+            for (String key : props.stringPropertyNames()) {
+                declaredKeys.add(key.strip());
+                if (required.test(key.strip()) || referencedNames.contains(key)) {
+                    pending.push(key);
+                }
+            }
+            while (!pending.isEmpty()) {
+                String key = pending.pop();
+                if (!keys.add(key)) {
+                    continue;
+                }
+                loadedKeys.add(key.strip());
+                Matcher matcher = VARIABLE_PATTERN_MATCHER.matcher(props.getProperty(key));
+                while (matcher.find()) {
+                    String name = matcher.group(1);
+                    // An earlier definition of the name may be the one the reference resolves to
+                    referencedNames.add(name);
+                    if (props.containsKey(name)) {
+                        pending.push(name);
+                    }
+                }
+            }
+            keysToLoad.put(path, keys);
+        }
+        declaredKeys.removeAll(loadedKeys);
+        context.keysToLoad = keysToLoad;
+        context.unusedKeys = new TreeSet<>(declaredKeys);
+    }
+
+    /**
+     * Finds the files included by the <code>#include</code> lines of an
+     * environment file. Lines continuing a value are not directives.
+     *
+     * @param path    The absolute path of the file.
+     * @param content The content of the file.
+     * @return The absolute paths of the included files, in include order.
+     */
+    private static List<Path> findIncludes(Path path, String content) {
+        List<Path> includes = new ArrayList<>();
+        boolean continuation = false;
+        for (String line : content.lines().toList()) {
+            boolean isComment = false;
+            if (!continuation) {
+                Matcher matcher = INCLUDE_DIRECTIVE_PATTERN.matcher(line);
+                if (matcher.matches()) {
+                    String include = Objects.nonNull(matcher.group(1)) ? matcher.group(1)
+                            : Objects.nonNull(matcher.group(2)) ? matcher.group(2) : matcher.group(3);
+                    includes.add(path.resolveSibling(include.strip()).toAbsolutePath().normalize());
+                }
+                String stripped = line.stripLeading();
+                isComment = stripped.startsWith("#") || stripped.startsWith("!");
+            }
+            // A value ending with an odd number of backslashes continues on the next line
+            continuation = !isComment && endsWithOddBackslashes(line);
+        }
+        return List.copyOf(includes);
+    }
+
+    /**
+     * Returns whether a line ends with an escaping backslash.
+     *
+     * @param line The line to check.
+     * @return {@code true} if the line ends with an odd number of backslashes.
+     */
+    private static boolean endsWithOddBackslashes(String line) {
+        int count = 0;
+        for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+            count++;
+        }
+        return count % 2 == 1;
+    }
+
+    /**
+     * Returns the discovered environment files and every file they include, for
+     * the fingerprint of the shared snapshot. Files which cannot be read are
+     * kept without their includes; the load reports them.
+     *
+     * @param context The context of the current load.
+     * @return The source files of the load.
+     */
+    private List<Path> collectSourceFiles(LoadContext context) {
+        Set<Path> sourceFiles = new LinkedHashSet<>();
+        Deque<Path> pending = new ArrayDeque<>();
+        context.envFiles.forEach(path -> pending.addLast(path.toAbsolutePath().normalize()));
+        while (!pending.isEmpty()) {
+            Path path = pending.removeFirst();
+            if (sourceFiles.add(path)) {
+                try {
+                    pending.addAll(readEnvFile(context, path).includes());
+                } catch (IOException e) {
+                    // The load reports the files which cannot be read
+                }
+            }
+        }
+        return new ArrayList<>(sourceFiles);
+    }
+
+    /**
+     * Returns the size of a file in bytes, for the startup step tags.
+     *
+     * @param path The path of the file.
+     * @return The size of the file, or {@code -1} if it cannot be read.
+     */
+    private static String sizeOf(Path path) {
+        try {
+            return String.valueOf(Files.size(path));
+        } catch (IOException e) {
+            return "-1";
         }
     }
 
@@ -220,22 +990,31 @@ public class EnvContextLoader {
      * Resolves the value of a given environment variable, handling nested variables
      * and detecting circular dependencies.
      *
-     * @param props The {@link Properties} object containing the environment
-     *              variables.
-     * @param key   The name of the variable to resolve.
+     * <p>
+     * Every variable resolved on the way, and every variable found to be
+     * unresolvable, is remembered in the load context for the rest of the file,
+     * so that the keys of a file are resolved in time linear in the size of the
+     * reference graph.
+     * </p>
+     *
+     * @param context The context of the current load.
+     * @param props   The {@link Properties} object containing the environment
+     *                variables.
+     * @param key     The name of the variable to resolve.
      * @return The resolved value of the variable, or {@code null} if it cannot be
      *         resolved.
      * @throws EnvContextLoaderException if a circular dependency is detected.
      */
-    private String getResolvedValue(Properties props, String key) {
-        Map<String, String> resolved = new HashMap<>();
+    private String getResolvedValue(LoadContext context, Properties props, String key) {
+        Map<String, String> resolved = context.resolvedValues;
         Set<String> resolving = new HashSet<>();
         Deque<String> stack = new ArrayDeque<>();
 
         // If the variable name in the env properties file is invalid then stop further
         // actions and return immediately.
         if (!isValidVariableName(key)) {
-            logger.warn("The variable name: {} is considered invalid. Please double check.", key);
+            logger.debug("The variable name: {} is considered invalid. Please double check.", key);
+            context.diagnostics.record(EnvLoadIssue.Kind.INVALID_NAME, context.currentFile, key);
             return null;
         }
 
@@ -244,7 +1023,18 @@ public class EnvContextLoader {
 
         // Resolve the value of the variable marked by key
         while (!stack.isEmpty()) {
+            context.resolutionSteps++;
             String name = stack.peek();
+            if (resolved.containsKey(name)) {
+                // Already resolved, e.g. when referenced several times by the same value
+                stack.pop();
+                continue;
+            }
+            if (context.unresolvableNames.contains(name)) {
+                // The variables being resolved all depend on this one
+                context.unresolvableNames.addAll(resolving);
+                return null;
+            }
             // When a variable value defined use its value
             // otherwise, fall back to the system property with the same name.
             String value = props.getProperty(name);
@@ -256,16 +1046,22 @@ public class EnvContextLoader {
             }
 
             if (Objects.isNull(value) || value.isBlank()) {
-                logger.warn("The definition of the env variable {} is not found!", name);
+                logger.debug("The definition of the env variable {} is not found!", name);
+                context.diagnostics.record(EnvLoadIssue.Kind.UNDEFINED_VARIABLE, context.currentFile, name);
                 // We cannot resolve this variable
+                context.unresolvableNames.add(name);
+                context.unresolvableNames.addAll(resolving);
                 return null;
             }
 
             // Check if the value is valid
             Matcher badVariable = BAD_VARIABLE_PATTERN_MATCHER.matcher(value);
             if (badVariable.matches()) {
-                logger.warn("The variable definition {}={} is considered invalid. Please double check.", name, value);
+                logger.debug("The variable definition of {} is considered invalid. Please double check.", name);
+                context.diagnostics.record(EnvLoadIssue.Kind.INVALID_DEFINITION, context.currentFile, name);
                 // We cannot proceed further, this variable will not be resolved
+                context.unresolvableNames.add(name);
+                context.unresolvableNames.addAll(resolving);
                 return null;
             } else {
                 // Add variable name to resolving set
@@ -273,11 +1069,15 @@ public class EnvContextLoader {
 
                 // Iteratively resolve the variable value
                 Matcher variableMatcher = VARIABLE_PATTERN_MATCHER.matcher(value);
+                // A reference needs a closing brace: not matching past the last one keeps
+                // unclosed references from being rescanned to the end of the value
+                variableMatcher.region(0, value.lastIndexOf('}') + 1);
                 StringBuilder sb = new StringBuilder();
-                boolean isResolved = resolve(resolving, resolved, stack, variableMatcher, sb);
+                boolean isResolved = resolve(context, resolving, resolved, stack, variableMatcher, sb);
 
                 if (isResolved) {
                     variableMatcher.appendTail(sb);
+                    addExpandedCharacters(context, sb.length() - value.length());
                     resolved.put(name, sb.toString());
                     resolving.remove(name);
                     stack.pop();
@@ -290,6 +1090,7 @@ public class EnvContextLoader {
     /**
      * Helper method to iteratively resolve a variable's value.
      *
+     * @param context         The context of the current load.
      * @param resolving       A set of variable names currently being resolved.
      * @param resolved        A map of already resolved variables and their values.
      * @param stack           A stack used for depth-first resolution of variables.
@@ -299,33 +1100,79 @@ public class EnvContextLoader {
      *                        value.
      * @return {@code true} if the variable was successfully resolved, {@code false}
      *         if further resolution is needed.
-     * @throws EnvContextLoaderException if a circular dependency is detected.
+     * @throws EnvContextLoaderException if a circular dependency is detected, or if
+     *                                   the references expand too much.
      */
-    private boolean resolve(Set<String> resolving, Map<String, String> resolved, Deque<String> stack,
+    private boolean resolve(LoadContext context, Set<String> resolving, Map<String, String> resolved, Deque<String> stack,
             Matcher variableMatcher, StringBuilder sb) {
 
         boolean isResolved = true;
 
         while (variableMatcher.find()) {
+            context.resolutionSteps++;
             String name = variableMatcher.group(1);
             if (resolving.contains(name)) {
                 throw new EnvContextLoaderException("Circular dependency detected on variable %s.".formatted(name));
             }
 
-            if (resolved.containsKey(name)) {
+            if (name.startsWith("file:")) {
+                // File references are kept as they are and read when the value is looked up
+                variableMatcher.appendReplacement(sb, Matcher.quoteReplacement(variableMatcher.group()));
+            } else if (resolved.containsKey(name)) {
                 // use the resolved value from the local resolved cache
-                variableMatcher.appendReplacement(sb, resolved.get(name));
-            } else if (propertiesMap.containsKey(name)) {
-                // use the resolved value from the already resolved properties map
-                variableMatcher.appendReplacement(sb, propertiesMap.get(name.strip()));
+                variableMatcher.appendReplacement(sb, Matcher.quoteReplacement(resolved.get(name)));
+            } else if (Objects.nonNull(context.store.get(name))) {
+                // use the resolved value from the already loaded files
+                variableMatcher.appendReplacement(sb, Matcher.quoteReplacement(context.store.get(name)));
             } else {
                 stack.push(name);
                 isResolved = false;
             }
+            if (isResolved) {
+                // The literal text up to the end of the reference was appended as well
+                checkExpansionLength(stack.peek(), sb.length() - variableMatcher.end());
+            }
         }
         return isResolved;
     }
 
+    /**
+     * Fails the load when the references of the value being resolved added more
+     * than {@link #MAX_EXPANSION_LENGTH} characters to it.
+     *
+     * @param name   The name of the variable being resolved.
+     * @param growth The number of characters the expanded references added.
+     * @throws EnvContextLoaderException if the references expand too much.
+     */
+    private void checkExpansionLength(String name, int growth) {
+        if (growth > MAX_EXPANSION_LENGTH) {
+            throw new EnvContextLoaderException("The references of variable %s expand by more than %d characters."
+                    .formatted(name, MAX_EXPANSION_LENGTH));
+        }
+    }
+
+    /**
+     * Adds the characters the references of a resolved value added to it to
+     * those expanded by the current load, and fails the load once they exceed
+     * {@link #MAX_TOTAL_EXPANSION_LENGTH}.
+     *
+     * @param context The context of the current load.
+     * @param growth  The number of characters the expanded references added.
+     * @throws EnvContextLoaderException if the references of the load expand too
+     *                                   much.
+     */
+    private void addExpandedCharacters(LoadContext context, int growth) {
+        if (growth <= 0) {
+            return;
+        }
+        context.expandedCharacters += growth;
+        if (context.expandedCharacters > MAX_TOTAL_EXPANSION_LENGTH) {
+            throw new EnvContextLoaderException(
+                    "The references of the environment files expand by more than %d characters in total."
+                            .formatted(MAX_TOTAL_EXPANSION_LENGTH));
+        }
+    }
+
     /**
      * Searches for the <code>dotenv.properties</code> file within the classpath
      * resources.
@@ -344,7 +1191,6 @@ public class EnvContextLoader {
             return path.toAbsolutePath().toString();
 
         }
-        logger.warn("dotenv.properties not found in the classpath");
         return null;
     }
 
@@ -363,13 +1209,16 @@ public class EnvContextLoader {
 
     /**
      * Reads the <code>dotenv.properties</code> file and sets the environment files
-     * to load and the directory path where the files are located.
+     * to load in the given load context.
      *
+     * @param context               The context of the current load.
      * @param envPropertiesFilePath The path to the <code>dotenv.properties</code>
      *                              file to read.
+     * @return The directory path where the files are located, or {@code null} if
+     *         it is not specified.
      * @throws IOException If an I/O error occurs reading the file.
      */
-    private void setEnvFilesToLoad(String envPropertiesFilePath) throws IOException {
+    private String setEnvFilesToLoad(LoadContext context, String envPropertiesFilePath) throws IOException {
         try (InputStreamReader reader = new InputStreamReader(Files.newInputStream(Path.of(
                 envPropertiesFilePath)),
                 StandardCharsets.UTF_8)) {
@@ -377,7 +1226,7 @@ public class EnvContextLoader {
             props.load(reader);
 
             // Look for the ENV_DIR_PATH
-            ENV_DIR_PATH = props.getProperty("ENV_DIR_PATH");
+            String dirPath = props.getProperty("ENV_DIR_PATH");
 
             // Look for the files to load
             List<String> fileNameKeys = props.stringPropertyNames()
@@ -386,9 +1235,81 @@ public class EnvContextLoader {
             for (String key : fileNameKeys) {
                 String value = props.getProperty(key);
                 if (Objects.nonNull(value) && !value.isBlank()) {
-                    envFilesToLoad.add(value);
+                    context.envFilesToLoad.add(value);
                 }
             }
+            return dirPath;
         }
     }
+
+    /**
+     * The mutable state of a single {@link #load()} call. It is confined to the
+     * thread running the load and discarded once the result is published.
+     */
+    private static final class LoadContext {
+        /**
+         * A set of environment files to load.
+         * These are specified in the dotenv.properties file or the constructor.
+         */
+        private final Set<String> envFilesToLoad = new HashSet<>();
+        /**
+         * The loaded properties with a layer per environment file.
+         */
+        private LayeredPropertyStore store = LayeredPropertyStore.empty();
+        /**
+         * The discovered environment files, in the order they are loaded.
+         */
+        private final List<Path> envFiles = new ArrayList<>();
+        /**
+         * The resolved values of the variables of the file being parsed.
+         */
+        private final Map<String, String> resolvedValues = new HashMap<>();
+        /**
+         * The variables of the file being parsed which cannot be resolved.
+         */
+        private final Set<String> unresolvableNames = new HashSet<>();
+        /**
+         * The environment files parsed during this load, by absolute path.
+         */
+        private final Map<Path, ParsedEnvFile> parsedFiles = new HashMap<>();
+        /**
+         * The issues found by this load.
+         */
+        private final EnvLoadDiagnostics.Collector diagnostics = new EnvLoadDiagnostics.Collector();
+        /**
+         * The name of the file being parsed, for the issues found while
+         * resolving its variables.
+         */
+        private String currentFile;
+        /**
+         * The fingerprint of the source files of this load.
+         */
+        private long fingerprint;
+        /**
+         * The variables evaluated and the references expanded while resolving
+         * the keys of the file being parsed.
+         */
+        private long resolutionSteps;
+        /**
+         * The characters the references of the values resolved by this load
+         * added to them, across all its files.
+         */
+        private long expandedCharacters;
+        /**
+         * The keys to load from each environment file, or {@code null} when
+         * every key is loaded.
+         */
+        private Map<Path, Set<String>> keysToLoad;
+        /**
+         * The keys which are not loaded because they are not required.
+         */
+        private Set<String> unusedKeys = new TreeSet<>();
+    }
+
+    /**
+     * The unresolved variables and the includes of a parsed environment file,
+     * with the size and the modification time the file had when it was read.
+     */
+    private record ParsedEnvFile(long size, long modified, Map<String, String> properties, List<Path> includes) {
+    }
 }
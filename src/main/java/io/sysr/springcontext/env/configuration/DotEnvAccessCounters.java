@@ -0,0 +1,136 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Per-key hit and miss counters of a {@link DotEnvPropertySource}.
+ *
+ * <p>
+ * Every loaded key gets its own {@link LongAdder} when the counters are
+ * created, so recording a hit never modifies a shared structure and does not
+ * contend under concurrent lookups. Missed names are counted in a concurrent
+ * map bounded to {@link #MAX_TRACKED_MISSES} names; further missed names are
+ * only counted in total.
+ * </p>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class DotEnvAccessCounters {
+    /**
+     * The maximum number of distinct missed names that are counted by name.
+     */
+    public static final int MAX_TRACKED_MISSES = 1024;
+    /**
+     * The hit counters of the loaded keys.
+     */
+    private final Map<String, LongAdder> keyCounters;
+    /**
+     * The same hit counters indexed by the normalized key names.
+     */
+    private final Map<String, LongAdder> relaxedCounters;
+    private final ConcurrentHashMap<String, LongAdder> missCounters = new ConcurrentHashMap<>();
+    private final LongAdder untrackedMisses = new LongAdder();
+
+    /**
+     * Constructs the counters of the given loaded variables.
+     *
+     * @param source The loaded dotenv variables.
+     */
+    DotEnvAccessCounters(Properties source) {
+        Map<String, LongAdder> byKey = new HashMap<>();
+        Map<String, LongAdder> byNormalizedName = new HashMap<>();
+        for (String key : new TreeSet<>(source.stringPropertyNames())) {
+            LongAdder counter = new LongAdder();
+            byKey.put(key, counter);
+            byNormalizedName.putIfAbsent(DotEnvPropertySource.normalize(key), counter);
+        }
+        this.keyCounters = Collections.unmodifiableMap(byKey);
+        this.relaxedCounters = Collections.unmodifiableMap(byNormalizedName);
+    }
+
+    /**
+     * Records a lookup that found a key by its exact name.
+     *
+     * @param key The loaded key.
+     */
+    void recordHit(String key) {
+        LongAdder counter = keyCounters.get(key);
+        if (Objects.nonNull(counter)) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Records a lookup that found a key by its relaxed name.
+     *
+     * @param normalizedName The normalized name that was looked up.
+     */
+    void recordRelaxedHit(String normalizedName) {
+        LongAdder counter = relaxedCounters.get(normalizedName);
+        if (Objects.nonNull(counter)) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Records a lookup that found nothing.
+     *
+     * @param name The name that was looked up.
+     */
+    void recordMiss(String name) {
+        LongAdder counter = missCounters.get(name);
+        if (Objects.isNull(counter)) {
+            if (missCounters.size() >= MAX_TRACKED_MISSES) {
+                untrackedMisses.increment();
+                return;
+            }
+            counter = missCounters.computeIfAbsent(name, missed -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Takes a snapshot of the counters. Lookups made while the snapshot is taken
+     * may or may not be included.
+     *
+     * @return The snapshot of the counters.
+     */
+    public DotEnvAccessSnapshot snapshot() {
+        return new DotEnvAccessSnapshot(sum(keyCounters), sum(missCounters), untrackedMisses.sum());
+    }
+
+    /**
+     * Builds a human readable summary of the counters, listing the keys that were
+     * never read and the most read keys.
+     *
+     * @param hottestLimit The maximum number of most read keys to list.
+     * @return The summary of the counters.
+     */
+    public String summary(int hottestLimit) {
+        DotEnvAccessSnapshot snapshot = snapshot();
+        List<String> unusedKeys = snapshot.unusedKeys();
+        String hottestKeys = snapshot.hottestKeys(hottestLimit).stream()
+                .map(entry -> entry.getKey() + "=" + entry.getValue())
+                .collect(Collectors.joining(", "));
+        return "%d of %d dotenv keys were read, %d lookups missed. Hottest keys: [%s]. Unused keys: %s"
+                .formatted(snapshot.hits().size() - unusedKeys.size(), snapshot.hits().size(),
+                        snapshot.totalMisses(), hottestKeys, unusedKeys);
+    }
+
+    private static Map<String, Long> sum(Map<String, LongAdder> counters) {
+        Map<String, Long> sums = new HashMap<>();
+        counters.forEach((name, counter) -> sums.put(name, counter.sum()));
+        return sums;
+    }
+}
@@ -0,0 +1,74 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A point-in-time copy of the access counters of a
+ * {@link DotEnvPropertySource}.
+ *
+ * @param hits            The number of lookups that found each loaded key.
+ *                        Keys that were never read have a count of zero.
+ * @param misses          The number of lookups of each tracked name that was
+ *                        not found.
+ * @param untrackedMisses The number of missed lookups of names beyond the
+ *                        tracking limit.
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public record DotEnvAccessSnapshot(Map<String, Long> hits, Map<String, Long> misses, long untrackedMisses) {
+    /**
+     * Creates a new {@code DotEnvAccessSnapshot} holding unmodifiable copies of
+     * the given counts.
+     *
+     * @param hits            The number of lookups that found each loaded key.
+     * @param misses          The number of lookups of each tracked name that was
+     *                        not found.
+     * @param untrackedMisses The number of missed lookups of names beyond the
+     *                        tracking limit.
+     */
+    public DotEnvAccessSnapshot {
+        hits = Map.copyOf(hits);
+        misses = Map.copyOf(misses);
+    }
+
+    /**
+     * Returns the loaded keys that were never read.
+     *
+     * @return The unused keys in natural order.
+     */
+    public List<String> unusedKeys() {
+        return hits.entrySet().stream()
+                .filter(entry -> entry.getValue() == 0L)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Returns the most read keys.
+     *
+     * @param limit The maximum number of keys to return.
+     * @return The keys that were read at least once, most read first.
+     */
+    public List<Map.Entry<String, Long>> hottestKeys(int limit) {
+        return hits.entrySet().stream()
+                .filter(entry -> entry.getValue() > 0L)
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Returns the total number of missed lookups.
+     *
+     * @return The number of missed lookups.
+     */
+    public long totalMisses() {
+        return misses.values().stream().mapToLong(Long::longValue).sum() + untrackedMisses;
+    }
+}
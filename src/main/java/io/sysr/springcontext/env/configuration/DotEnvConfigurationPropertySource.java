@@ -0,0 +1,143 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.springframework.boot.context.properties.source.ConfigurationProperty;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyState;
+import org.springframework.boot.context.properties.source.IterableConfigurationPropertySource;
+import org.springframework.boot.origin.Origin;
+import org.springframework.boot.origin.PropertySourceOrigin;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.PropertySources;
+import org.springframework.lang.NonNull;
+
+import io.sysr.springcontext.env.store.SortedNameIndex;
+
+/**
+ * A Spring Boot {@link IterableConfigurationPropertySource} adapter over a
+ * {@link DotEnvPropertySource}.
+ *
+ * <p>
+ * The adapter answers {@link ConfigurationPropertyName} lookups straight from
+ * the relaxed name index of the dotenv property source, so that binding
+ * <code>database.url</code> finds <code>DATABASE_URL</code> without the
+ * variant generation done for generic property sources. The binder's check
+ * for the names below the prefix of each bound bean is delegated to the
+ * {@link DotEnvPropertySource#getNameIndex() name index} of the property
+ * source, a binary search instead of a scan of all the names. The variables
+ * bound by a {@link DotEnvOverlay} on the current thread are listed and found
+ * as well.
+ * </p>
+ *
+ * <p>
+ * {@link #from(PropertySources)} adapts the property sources of an
+ * environment with this adapter in place of Spring Boot's generic wrapper of
+ * the dotenv property sources, keeping their precedence.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * Binder binder = new Binder(DotEnvConfigurationPropertySource.from(environment.getPropertySources()));
+ * String url = binder.bind("database.url", String.class).get();
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public class DotEnvConfigurationPropertySource implements IterableConfigurationPropertySource {
+    private final DotEnvPropertySource propertySource;
+
+    /**
+     * Constructs a new {@code DotEnvConfigurationPropertySource}.
+     *
+     * @param propertySource the dotenv property source to adapt.
+     */
+    public DotEnvConfigurationPropertySource(@NonNull DotEnvPropertySource propertySource) {
+        this.propertySource = propertySource;
+    }
+
+    /**
+     * Adapts property sources for binding, the dotenv property sources with a
+     * {@code DotEnvConfigurationPropertySource} and the others as Spring Boot
+     * does, in the order of the property sources.
+     *
+     * @param propertySources the property sources to adapt.
+     * @return the configuration property sources, in precedence order.
+     */
+    public static Iterable<ConfigurationPropertySource> from(@NonNull PropertySources propertySources) {
+        List<ConfigurationPropertySource> sources = new ArrayList<>();
+        for (PropertySource<?> source : propertySources) {
+            if (source instanceof DotEnvPropertySource dotEnvPropertySource) {
+                sources.add(new DotEnvConfigurationPropertySource(dotEnvPropertySource));
+            } else if (!ConfigurationPropertySources.isAttachedConfigurationPropertySource(source)) {
+                ConfigurationPropertySources.from(source).forEach(sources::add);
+            }
+        }
+        return sources;
+    }
+
+    @Override
+    public ConfigurationProperty getConfigurationProperty(ConfigurationPropertyName name) {
+        if (Objects.isNull(name)) {
+            return null;
+        }
+        String value = propertySource.getRelaxedProperty(DotEnvPropertySource.normalize(name.toString()));
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        Origin origin = PropertySourceOrigin.get(propertySource, name.toString());
+        return new ConfigurationProperty(name, value, origin);
+    }
+
+    @Override
+    public Stream<ConfigurationPropertyName> stream() {
+        return Stream.concat(propertySource.getNameIndex().names().stream(), overriddenNames(propertySource))
+                .map(name -> ConfigurationPropertyName.adapt(name, SortedNameIndex.SEPARATOR))
+                .filter(name -> !name.isEmpty())
+                .distinct();
+    }
+
+    /**
+     * Returns whether any variable is below the given name, as answered by the
+     * name index of the property source and by the overlay of the current
+     * thread.
+     *
+     * @param name the ancestor name.
+     * @return {@link ConfigurationPropertyState#PRESENT} if a variable is below
+     *         the name, {@link ConfigurationPropertyState#ABSENT} otherwise.
+     */
+    @Override
+    public ConfigurationPropertyState containsDescendantOf(ConfigurationPropertyName name) {
+        String normalized = DotEnvPropertySource.normalize(name.toString());
+        if (propertySource.getNameIndex().hasDescendants(normalized)) {
+            return ConfigurationPropertyState.PRESENT;
+        }
+        String prefix = normalized + SortedNameIndex.SEPARATOR;
+        boolean overridden = overriddenNames(propertySource).anyMatch(overriddenName -> normalized.isEmpty()
+                || overriddenName.startsWith(prefix));
+        return overridden ? ConfigurationPropertyState.PRESENT : ConfigurationPropertyState.ABSENT;
+    }
+
+    /**
+     * Returns the normalized names of the variables of a property source
+     * overridden on the current thread.
+     */
+    private static Stream<String> overriddenNames(DotEnvPropertySource propertySource) {
+        return DotEnvOverlay.boundNames(propertySource.getName()).stream().map(DotEnvPropertySource::normalize);
+    }
+
+    @Override
+    public Object getUnderlyingSource() {
+        return propertySource;
+    }
+}
@@ -0,0 +1,85 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.Objects;
+
+import org.crac.Core;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.util.ClassUtils;
+
+import io.sysr.springcontext.env.EnvContextLoader;
+
+/**
+ * Registers the {@link DotEnvCracResource} of an application context with the
+ * global CRaC context.
+ *
+ * <p>
+ * The CRaC API is an optional dependency: this class is the only one the
+ * {@link SpringContextEnvApplicationContextInitializer} calls into for it, and
+ * only once {@link #isCracPresent(ClassLoader)} found the API on the
+ * classpath, so that the initializer loads without it.
+ * </p>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+final class DotEnvCracRegistrar {
+    private static final String CRAC_CORE_CLASS_NAME = "org.crac.Core";
+
+    private DotEnvCracRegistrar() {
+    }
+
+    /**
+     * Returns whether the CRaC API is on the classpath.
+     *
+     * @param classLoader the class loader of the application.
+     * @return {@code true} if the CRaC API can be loaded.
+     */
+    static boolean isCracPresent(ClassLoader classLoader) {
+        return ClassUtils.isPresent(CRAC_CORE_CLASS_NAME, classLoader);
+    }
+
+    /**
+     * Registers a resource reloading the dotenv property source of a context
+     * with the global CRaC context, and as a bean of the context, which keeps it
+     * reachable.
+     *
+     * @param applicationContext the context holding the dotenv property source.
+     * @param loader             the loader of the dotenv property source.
+     */
+    static void register(ConfigurableApplicationContext applicationContext, EnvContextLoader loader) {
+        DotEnvCracResource resource = new DotEnvCracResource(applicationContext.getEnvironment(), loader)
+                .register(Core.getGlobalContext());
+        // The CRaC context only keeps weak references to its resources
+        applicationContext.getBeanFactory().registerSingleton(
+                SpringContextEnvApplicationContextInitializer.CRAC_RESOURCE_BEAN_NAME, resource);
+    }
+
+    /**
+     * Adds the environment of a child context, which reuses the dotenv property
+     * source of an ancestor, to the resource of the closest ancestor holding
+     * one, until the child context is closed.
+     *
+     * @param applicationContext the child context.
+     */
+    static void attachToParentResource(ConfigurableApplicationContext applicationContext) {
+        for (ApplicationContext context = applicationContext.getParent(); Objects.nonNull(context);
+                context = context.getParent()) {
+            if (context instanceof ConfigurableApplicationContext configurableContext
+                    && configurableContext.getBeanFactory().getSingleton(
+                            SpringContextEnvApplicationContextInitializer.CRAC_RESOURCE_BEAN_NAME)
+                            instanceof DotEnvCracResource resource) {
+                resource.addEnvironment(applicationContext.getEnvironment());
+                applicationContext.addApplicationListener((ApplicationListener<ContextClosedEvent>) event -> {
+                    if (event.getApplicationContext() == applicationContext) {
+                        resource.removeEnvironment(applicationContext.getEnvironment());
+                    }
+                });
+                return;
+            }
+        }
+    }
+}
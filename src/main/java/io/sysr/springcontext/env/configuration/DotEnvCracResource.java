@@ -0,0 +1,162 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.crac.Context;
+import org.crac.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.lang.NonNull;
+
+import io.sysr.springcontext.env.EnvContextLoader;
+import io.sysr.springcontext.env.file.FileValueCache;
+
+/**
+ * A Coordinated Restore at Checkpoint (CRaC) {@link Resource} keeping the
+ * dotenv property source of an environment up to date across a checkpoint and
+ * a restore.
+ *
+ * <p>
+ * A restored JVM keeps the property sources it had when it was checkpointed,
+ * while the <code>.env</code> files of the host it is restored on may differ.
+ * The loader of the property source fingerprints the environment files, and
+ * the files they include, right before it reads them. Before the
+ * checkpoint, it drops the parsed files and the file contents cached for
+ * <code>${file:...}</code> references, so that neither ends up in the
+ * checkpoint image. After the restore, the files are fingerprinted again and,
+ * only when something changed, loaded again by the same loader, with the same
+ * required keys, into a new {@link DotEnvPropertySource} replacing the one of
+ * the environment. Beans reading the dotenv property source through the
+ * environment, such as the {@link DotEnvTypedValues} registered by the
+ * {@link SpringContextEnvApplicationContextInitializer}, see the reloaded
+ * values. The environments of the child contexts reusing the dotenv property
+ * source, {@link #addEnvironment(ConfigurableEnvironment) added} to the
+ * resource, get the new property source too.
+ * </p>
+ *
+ * <p>
+ * The CRaC context only keeps weak references to its resources: the
+ * registrant must keep the resource reachable. The
+ * {@link SpringContextEnvApplicationContextInitializer} registers it as a
+ * bean, and only when the CRaC API, an optional dependency, is on the
+ * classpath. On a JDK without CRaC support, the resource is never called.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * EnvContextLoader loader = new EnvContextLoader();
+ * loader.load();
+ * environment.getPropertySources().addLast(new DotEnvPropertySource(loader.getLoadedProperties()));
+ * DotEnvCracResource resource = new DotEnvCracResource(environment, loader);
+ * resource.register(Core.getGlobalContext());
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public class DotEnvCracResource implements Resource {
+    private static final Logger logger = LoggerFactory.getLogger(DotEnvCracResource.class);
+
+    private final ConfigurableEnvironment environment;
+    private final EnvContextLoader loader;
+    /**
+     * The environments of the child contexts reusing the dotenv property source.
+     */
+    private final List<ConfigurableEnvironment> childEnvironments = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a new {@code DotEnvCracResource}.
+     *
+     * @param environment the environment holding the dotenv property source.
+     * @param loader      the loader which loaded the dotenv property source of
+     *                    the environment.
+     */
+    public DotEnvCracResource(@NonNull ConfigurableEnvironment environment, @NonNull EnvContextLoader loader) {
+        this.environment = Objects.requireNonNull(environment, "The environment must not be null");
+        this.loader = Objects.requireNonNull(loader, "The loader must not be null");
+    }
+
+    /**
+     * Registers this resource with the given CRaC context.
+     *
+     * @param context the context to register with, usually
+     *                {@link org.crac.Core#getGlobalContext()}.
+     * @return this resource, which the caller must keep reachable.
+     */
+    public DotEnvCracResource register(Context<Resource> context) {
+        context.register(this);
+        return this;
+    }
+
+    /**
+     * Adds the environment of a child context reusing the dotenv property source
+     * of the environment of this resource, so that it gets the reloaded property
+     * source too.
+     *
+     * @param childEnvironment the environment of the child context.
+     */
+    public void addEnvironment(@NonNull ConfigurableEnvironment childEnvironment) {
+        childEnvironments.add(Objects.requireNonNull(childEnvironment, "The environment must not be null"));
+    }
+
+    /**
+     * Removes the environment of a child context, once the context is closed.
+     *
+     * @param childEnvironment the environment of the child context.
+     */
+    public void removeEnvironment(ConfigurableEnvironment childEnvironment) {
+        childEnvironments.remove(childEnvironment);
+    }
+
+    /**
+     * Drops the cached parsed files and file contents.
+     *
+     * @param context the CRaC context.
+     */
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        loader.releaseResources();
+        FileValueCache.getSharedInstance().clear();
+        logger.debug("Released the dotenv caches before the checkpoint");
+    }
+
+    /**
+     * Fingerprints the environment files and, when they changed since they were
+     * loaded, loads them again and replaces the dotenv property source of the
+     * environment and of the child environments.
+     *
+     * @param context the CRaC context.
+     */
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        if (loader.fingerprintSourceFiles() == loader.getLoadedFingerprint()) {
+            logger.debug("The env files did not change since they were loaded");
+            return;
+        }
+        loader.load();
+        DotEnvPropertySource propertySource = SpringContextEnvApplicationContextInitializer
+                .createPropertySource(environment, loader);
+        MutablePropertySources propertySources = environment.getPropertySources();
+        if (propertySources.contains(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME)) {
+            propertySources.replace(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME, propertySource);
+        } else {
+            propertySources.addLast(propertySource);
+        }
+        for (ConfigurableEnvironment childEnvironment : childEnvironments) {
+            MutablePropertySources childPropertySources = childEnvironment.getPropertySources();
+            if (childPropertySources.contains(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME)) {
+                childPropertySources.replace(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME, propertySource);
+            }
+        }
+        logger.info("Reloaded {} dotenv properties after the restore, the env files changed since they were loaded",
+                propertySource.getSource().size());
+    }
+}
@@ -0,0 +1,277 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import io.sysr.springcontext.env.store.PersistentHashMap;
+
+/**
+ * Temporary overrides of dotenv variables, bound to the current thread for
+ * the execution of a task, in the style of {@code ScopedValue}.
+ *
+ * <p>
+ * Tests and per-request routing often need a few variables to hold other
+ * values for a while, without changing the loaded properties seen by the
+ * other threads. While a task runs within {@link #run(Runnable)} or
+ * {@link #call(Callable)}, the {@link DotEnvPropertySource} the overlay is
+ * bound to answers the bound variables, by their exact or relaxed names, with
+ * the overriding values. Overlays nest: an inner overlay adds its bindings to
+ * the ones of the enclosing overlay, which are restored when the inner task
+ * ends. The other property sources of the environment keep their precedence
+ * over the dotenv variables, overridden or not.
+ * </p>
+ *
+ * <p>
+ * An overlay is bound to the dotenv property source of the application,
+ * registered under {@link DotEnvPropertySource#DOTENV_PROPERTY_SOURCE_NAME},
+ * unless {@link #forSource(String)} binds it to another source, such as the
+ * property source of a tenant. The dotenv property sources of other names,
+ * the ones of the other tenants included, do not see its bindings.
+ * </p>
+ *
+ * <p>
+ * The overriding values are returned as they are bound: unlike the loaded
+ * values, their <code>${file:...}</code> references are not replaced with the
+ * content of the files, so that a value taken from a request cannot read the
+ * files of the host.
+ * </p>
+ *
+ * <p>
+ * The bindings are immutable hash tries held by a {@link ThreadLocal}, so
+ * that a lookup costs one thread-local read and a hash probe, without any
+ * shared lock, and works on virtual threads as on platform threads. Until an
+ * overlay is first used, lookups do not even read the thread-local. The
+ * bindings are not inherited by the threads the task starts. Overridden
+ * variables which are not loaded are answered by lookups and listed by
+ * {@link DotEnvPropertySource#getPropertyNames()} on the thread of the
+ * overlay, so that Spring Boot's binder finds them too.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * DotEnvOverlay.where("DATABASE_URL", "jdbc:postgresql://replica/app")
+ *         .and("FEATURE_ENABLED", "true")
+ *         .run(() -> environment.getProperty("database.url")); // the replica
+ *
+ * DotEnvOverlay.forSource(registry.getPropertySource("acme").getName())
+ *         .and("DATABASE_URL", "jdbc:postgresql://replica/acme")
+ *         .run(() -> registry.getProperty("acme", "DATABASE_URL")); // the replica of acme only
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class DotEnvOverlay {
+    /**
+     * The bindings of the current thread, by the name of the property source
+     * they are bound to.
+     */
+    private static final ThreadLocal<PersistentHashMap<String, Bindings>> CURRENT = new ThreadLocal<>();
+    /**
+     * Whether an overlay was ever bound, so that lookups skip the thread-local
+     * read in applications which never use overlays.
+     */
+    private static volatile boolean used;
+
+    /**
+     * The name of the property source the bindings apply to.
+     */
+    private final String sourceName;
+    /**
+     * The bindings of this overlay only, added to the current bindings when it
+     * is run.
+     */
+    private final Bindings bindings;
+
+    private DotEnvOverlay(String sourceName, Bindings bindings) {
+        this.sourceName = sourceName;
+        this.bindings = bindings;
+    }
+
+    /**
+     * Returns an overlay binding a variable of the dotenv property source of the
+     * application to the given value.
+     *
+     * @param key   the name of the variable to override.
+     * @param value the overriding value.
+     * @return the new overlay.
+     */
+    public static DotEnvOverlay where(String key, String value) {
+        return forSource(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME).and(key, value);
+    }
+
+    /**
+     * Returns an overlay without any binding, whose bindings apply to the
+     * dotenv property source of the given name only.
+     *
+     * @param propertySourceName the name of the dotenv property source to
+     *                           override variables of.
+     * @return the new overlay.
+     */
+    public static DotEnvOverlay forSource(String propertySourceName) {
+        Objects.requireNonNull(propertySourceName, "The property source name must not be null");
+        return new DotEnvOverlay(propertySourceName, Bindings.EMPTY);
+    }
+
+    /**
+     * Returns an overlay binding a variable to the given value in addition to
+     * the bindings of this overlay.
+     *
+     * @param key   the name of the variable to override.
+     * @param value the overriding value.
+     * @return the new overlay.
+     */
+    public DotEnvOverlay and(String key, String value) {
+        return new DotEnvOverlay(sourceName, bindings.plus(key, value));
+    }
+
+    /**
+     * Runs a task on the current thread with the bindings of this overlay.
+     *
+     * @param task the task to run.
+     */
+    public void run(Runnable task) {
+        PersistentHashMap<String, Bindings> previous = bind();
+        try {
+            task.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Calls a task on the current thread with the bindings of this overlay.
+     *
+     * @param <T>  the type of the result of the task.
+     * @param task the task to call.
+     * @return the result of the task.
+     * @throws Exception if the task fails.
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        PersistentHashMap<String, Bindings> previous = bind();
+        try {
+            return task.call();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Returns whether the current thread runs within an overlay.
+     *
+     * @return {@code true} if variables are overridden on the current thread.
+     */
+    public static boolean isBound() {
+        return used && Objects.nonNull(CURRENT.get());
+    }
+
+    /**
+     * Returns the overriding value of a variable of a property source on the
+     * current thread, looked up by its exact name, then by its relaxed name.
+     *
+     * @param sourceName the name of the property source.
+     * @param name       the name of the variable.
+     * @return the overriding value, or {@code null} if the variable is not
+     *         overridden.
+     */
+    static String lookup(String sourceName, String name) {
+        Bindings current = current(sourceName);
+        if (Objects.isNull(current)) {
+            return null;
+        }
+        String value = current.exact().get(name);
+        return Objects.nonNull(value) ? value : current.relaxed().get(DotEnvPropertySource.normalize(name));
+    }
+
+    /**
+     * Returns the overriding value of a variable of a property source on the
+     * current thread, looked up by its relaxed name only.
+     *
+     * @param sourceName     the name of the property source.
+     * @param normalizedName the normalized name of the variable.
+     * @return the overriding value, or {@code null} if the variable is not
+     *         overridden.
+     */
+    static String lookupRelaxed(String sourceName, String normalizedName) {
+        Bindings current = current(sourceName);
+        return Objects.isNull(current) ? null : current.relaxed().get(normalizedName);
+    }
+
+    /**
+     * Returns the names of the variables of a property source overridden on the
+     * current thread, as bound.
+     *
+     * @param sourceName the name of the property source.
+     * @return the overridden names, empty if the current thread runs within no
+     *         overlay of the property source.
+     */
+    static Set<String> boundNames(String sourceName) {
+        Bindings current = current(sourceName);
+        if (Objects.isNull(current)) {
+            return Set.of();
+        }
+        Set<String> names = new HashSet<>();
+        current.exact().forEach((name, value) -> names.add(name));
+        return names;
+    }
+
+    /**
+     * Returns the bindings of a property source on the current thread.
+     */
+    private static Bindings current(String sourceName) {
+        PersistentHashMap<String, Bindings> current = used ? CURRENT.get() : null;
+        return Objects.isNull(current) ? null : current.get(sourceName);
+    }
+
+    /**
+     * Adds the bindings of this overlay to the current ones.
+     *
+     * @return the bindings to restore once the task ends.
+     */
+    private PersistentHashMap<String, Bindings> bind() {
+        used = true;
+        PersistentHashMap<String, Bindings> previous = CURRENT.get();
+        PersistentHashMap<String, Bindings> bySource = Objects.isNull(previous) ? PersistentHashMap.empty()
+                : previous;
+        Bindings enclosing = bySource.get(sourceName);
+        Bindings merged = Objects.isNull(enclosing) ? bindings : enclosing.plusAll(bindings);
+        CURRENT.set(bySource.plus(sourceName, merged));
+        return previous;
+    }
+
+    private static void restore(PersistentHashMap<String, Bindings> previous) {
+        if (Objects.isNull(previous)) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * The overriding values, by exact and by normalized variable name.
+     */
+    private record Bindings(PersistentHashMap<String, String> exact, PersistentHashMap<String, String> relaxed) {
+        private static final Bindings EMPTY = new Bindings(PersistentHashMap.empty(), PersistentHashMap.empty());
+
+        private Bindings plus(String key, String value) {
+            Objects.requireNonNull(key, "The key must not be null");
+            Objects.requireNonNull(value, "The value must not be null");
+            return new Bindings(exact.plus(key, value), relaxed.plus(DotEnvPropertySource.normalize(key), value));
+        }
+
+        private Bindings plusAll(Bindings other) {
+            Bindings merged = this;
+            for (Map.Entry<String, String> entry : other.exact().entries()) {
+                merged = merged.plus(entry.getKey(), entry.getValue());
+            }
+            return merged;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import io.sysr.springcontext.env.store.SortedNameIndex;
+
+/**
+ * The immutable names of the variables of a {@link DotEnvPropertySource}: the
+ * variable names in natural order, their normalized forms and the
+ * {@link SortedNameIndex} of the normalized forms.
+ *
+ * <p>
+ * The names do not depend on the values of the variables, so that property
+ * sources defining the same variables, such as the sources of the tenants of a
+ * {@link io.sysr.springcontext.env.tenant.TenantEnvRegistry}, share a single
+ * instance instead of each normalizing and sorting the same names.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * DotEnvPropertyNames names = DotEnvPropertyNames.of(properties.stringPropertyNames());
+ * DotEnvPropertySource first = new DotEnvPropertySource("first", properties, names);
+ * DotEnvPropertySource second = new DotEnvPropertySource("second", otherPropertiesWithTheSameKeys, names);
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class DotEnvPropertyNames {
+    /**
+     * The variable names, in natural order.
+     */
+    private final String[] names;
+    private final List<String> view;
+    /**
+     * Index of the normalized variable names to the variable names. When several
+     * variables normalize to the same name, the first one in natural order is
+     * kept.
+     */
+    private final Map<String, String> namesByNormalizedName;
+    /**
+     * The sorted index of the normalized variable names.
+     */
+    private final SortedNameIndex nameIndex;
+
+    private DotEnvPropertyNames(String[] names, UnaryOperator<String> canonicalizer) {
+        this.names = names;
+        this.view = Collections.unmodifiableList(Arrays.asList(names));
+        Map<String, String> index = new HashMap<>();
+        for (String name : names) {
+            String normalized = DotEnvPropertySource.normalize(name);
+            if (!index.containsKey(normalized)) {
+                index.put(canonicalizer.apply(normalized), name);
+            }
+        }
+        this.namesByNormalizedName = Collections.unmodifiableMap(index);
+        this.nameIndex = SortedNameIndex.of(namesByNormalizedName.keySet());
+    }
+
+    /**
+     * Returns the names of the given variables.
+     *
+     * @param names The variable names.
+     * @return The new names.
+     */
+    public static DotEnvPropertyNames of(Collection<String> names) {
+        return of(names, UnaryOperator.identity());
+    }
+
+    /**
+     * Returns the names of the given variables, holding the instances of the
+     * normalized names returned by the canonicalizer, so that they can be shared
+     * with other names.
+     *
+     * @param names         The variable names.
+     * @param canonicalizer The function returning the instance to hold for a
+     *                      normalized name.
+     * @return The new names.
+     */
+    public static DotEnvPropertyNames of(Collection<String> names, UnaryOperator<String> canonicalizer) {
+        return new DotEnvPropertyNames(names.stream().distinct().sorted().toArray(String[]::new), canonicalizer);
+    }
+
+    /**
+     * Returns the number of variable names.
+     *
+     * @return The number of names.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the variable names.
+     *
+     * @return An unmodifiable view of the names, in natural order.
+     */
+    public List<String> names() {
+        return view;
+    }
+
+    /**
+     * Returns the variable name a normalized name stands for.
+     *
+     * @param normalizedName The normalized name.
+     * @return The variable name, or {@code null} if no variable normalizes to it.
+     */
+    public String nameOf(String normalizedName) {
+        return namesByNormalizedName.get(normalizedName);
+    }
+
+    /**
+     * Returns the sorted index of the normalized variable names.
+     *
+     * @return The immutable name index.
+     */
+    public SortedNameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Returns a copy of the variable names.
+     *
+     * @return The names, in natural order.
+     */
+    String[] toArray() {
+        return names.clone();
+    }
+}
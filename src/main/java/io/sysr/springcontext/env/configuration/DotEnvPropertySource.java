@@ -0,0 +1,361 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.boot.origin.Origin;
+import org.springframework.boot.origin.OriginLookup;
+import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import io.sysr.springcontext.env.EnvContextLoader;
+import io.sysr.springcontext.env.file.FileValueCache;
+import io.sysr.springcontext.env.store.SortedNameIndex;
+
+/**
+ * A {@link PropertiesPropertySource} holding the variables loaded from the
+ * <code>.env</code> files, which also answers lookups made with the relaxed
+ * forms of the variable names.
+ *
+ * <p>
+ * Dotenv variables are usually declared in <code>SCREAMING_SNAKE_CASE</code>
+ * while Spring Boot's binder and {@code @Value} placeholders ask for names
+ * such as <code>database.url</code> or <code>database-url</code>. When the
+ * source is created, every variable name is normalized once into a relaxed
+ * name index, so that a lookup which misses on the exact name is answered with
+ * two hash probes: one on the normalized name, one on the variable name it
+ * stands for.
+ * </p>
+ *
+ * <p>
+ * <b> Example: </b> with <code>DATABASE_URL=jdbc:h2:mem:db</code> loaded, the
+ * names <code>DATABASE_URL</code>, <code>database.url</code>,
+ * <code>database-url</code> and <code>database_url</code> all resolve to the
+ * same value.
+ * </p>
+ *
+ * <p>
+ * An exact match always takes precedence over a relaxed match. When several
+ * variables normalize to the same name, the first one in natural name order
+ * is kept in the index.
+ * </p>
+ *
+ * <p>
+ * Values holding file references such as
+ * <code>${file:/run/secrets/tls.crt}</code> are returned with the content of
+ * the files, read on the first lookup and cached by the shared
+ * {@link FileValueCache}.
+ * </p>
+ *
+ * <p>
+ * The variables bound to this source, by its name, by a {@link DotEnvOverlay}
+ * on the current thread take precedence over the loaded ones, and the ones
+ * which are not loaded are listed along with the loaded names on that thread.
+ * Their values are returned as they are bound, without expanding their file
+ * references.
+ * </p>
+ *
+ * <p>
+ * The variable names and their normalized forms are sorted once, when the
+ * source is created: {@link #getPropertyNames()} copies a cached array and
+ * {@link #getNameIndex()} answers prefix queries by binary search. They are
+ * held by a {@link DotEnvPropertyNames}, which sources defining the same
+ * variables may share. As overlays
+ * change the names and values seen by each thread, the source does not declare
+ * itself immutable to Spring Boot's configuration property adapters.
+ * </p>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public class DotEnvPropertySource extends PropertiesPropertySource implements OriginLookup<String> {
+    /**
+     * The name under which the dotenv property source is registered in the
+     * Spring environment.
+     */
+    public static final String DOTENV_PROPERTY_SOURCE_NAME = "springContextDotEnv";
+    /**
+     * The variable names, their normalized forms and the index of the
+     * normalized forms.
+     */
+    private final DotEnvPropertyNames names;
+    /**
+     * The access counters, or {@code null} when accesses are not counted.
+     */
+    private final DotEnvAccessCounters accessCounters;
+    /**
+     * Whether any value holds a file reference to expand on lookup.
+     */
+    private final boolean hasFileReferences;
+    /**
+     * The loader which loaded the variables, or {@code null} when they were
+     * given directly.
+     */
+    private final EnvContextLoader loader;
+
+    /**
+     * Constructs a new {@code DotEnvPropertySource} registered under the
+     * {@link #DOTENV_PROPERTY_SOURCE_NAME} name.
+     *
+     * @param source the loaded dotenv variables.
+     */
+    public DotEnvPropertySource(@NonNull Properties source) {
+        this(DOTENV_PROPERTY_SOURCE_NAME, source);
+    }
+
+    /**
+     * Constructs a new {@code DotEnvPropertySource}.
+     *
+     * @param name   the name of the property source.
+     * @param source the loaded dotenv variables.
+     */
+    public DotEnvPropertySource(@NonNull String name, @NonNull Properties source) {
+        this(name, source, false);
+    }
+
+    /**
+     * Constructs a new {@code DotEnvPropertySource}, optionally counting the hits
+     * and misses of every lookup.
+     *
+     * @param name          the name of the property source.
+     * @param source        the loaded dotenv variables.
+     * @param countAccesses whether to count the hits and misses of the lookups.
+     * @see #getAccessCounters()
+     */
+    public DotEnvPropertySource(@NonNull String name, @NonNull Properties source, boolean countAccesses) {
+        this(name, source, countAccesses, null);
+    }
+
+    /**
+     * Constructs a new {@code DotEnvPropertySource} reusing the names of another
+     * source defining the same variables.
+     *
+     * @param name   the name of the property source.
+     * @param source the loaded dotenv variables.
+     * @param names  the names of the variables of the source.
+     * @throws IllegalArgumentException if the names are not the names of the
+     *                                  variables of the source.
+     */
+    public DotEnvPropertySource(@NonNull String name, @NonNull Properties source, @NonNull DotEnvPropertyNames names) {
+        this(name, source, false, null, names);
+        if (names.size() != source.size() || !names.names().stream().allMatch(source::containsKey)) {
+            throw new IllegalArgumentException("The names are not the names of the variables of " + name);
+        }
+    }
+
+    /**
+     * Constructs a new {@code DotEnvPropertySource} of the variables loaded by
+     * the given loader, which reloads them when the source is replaced.
+     *
+     * @param name          the name of the property source.
+     * @param source        the loaded dotenv variables.
+     * @param countAccesses whether to count the hits and misses of the lookups.
+     * @param loader        the loader which loaded the variables, or
+     *                      {@code null}.
+     */
+    DotEnvPropertySource(String name, Properties source, boolean countAccesses, EnvContextLoader loader) {
+        this(name, source, countAccesses, loader, DotEnvPropertyNames.of(source.stringPropertyNames()));
+    }
+
+    private DotEnvPropertySource(String name, Properties source, boolean countAccesses, EnvContextLoader loader,
+            DotEnvPropertyNames names) {
+        super(name, source);
+        this.loader = loader;
+        this.names = names;
+        this.accessCounters = countAccesses ? new DotEnvAccessCounters(source) : null;
+        this.hasFileReferences = source.values().stream()
+                .anyMatch(value -> value instanceof String string && FileValueCache.hasFileReferences(string));
+    }
+
+    @Override
+    @NonNull
+    public String[] getPropertyNames() {
+        Set<String> overridden = DotEnvOverlay.boundNames(getName());
+        if (overridden.isEmpty()) {
+            return names.toArray();
+        }
+        Set<String> allNames = new TreeSet<>(overridden);
+        allNames.addAll(names.names());
+        return allNames.toArray(String[]::new);
+    }
+
+    /**
+     * Returns {@code null}: the origin of a dotenv variable is the property
+     * source itself.
+     *
+     * @param key the name of the variable.
+     * @return {@code null}.
+     */
+    @Override
+    @Nullable
+    public Origin getOrigin(String key) {
+        return null;
+    }
+
+    /**
+     * Returns {@code false}: although the loaded variables never change, a
+     * {@link DotEnvOverlay} changes the names and values seen by the current
+     * thread, which Spring Boot must not cache.
+     *
+     * @return {@code false}.
+     */
+    @Override
+    public boolean isImmutable() {
+        return false;
+    }
+
+    @Override
+    @Nullable
+    public Object getProperty(@NonNull String name) {
+        String overridden = DotEnvOverlay.lookup(getName(), name);
+        if (Objects.nonNull(overridden)) {
+            return overridden;
+        }
+        Object value = this.source.get(name);
+        if (Objects.nonNull(value)) {
+            if (Objects.nonNull(accessCounters)) {
+                accessCounters.recordHit(name);
+            }
+            return value instanceof String string ? expandFileReferences(string) : value;
+        }
+        value = getRelaxedProperty(normalize(name));
+        if (Objects.isNull(value) && Objects.nonNull(accessCounters)) {
+            accessCounters.recordMiss(name);
+        }
+        return value;
+    }
+
+    /**
+     * Looks a property up by its normalized name only.
+     *
+     * @param normalizedName the normalized property name.
+     * @return the value of the property, or {@code null} if it is not found.
+     */
+    @Nullable
+    String getRelaxedProperty(String normalizedName) {
+        String overridden = DotEnvOverlay.lookupRelaxed(getName(), normalizedName);
+        if (Objects.nonNull(overridden)) {
+            return overridden;
+        }
+        String key = names.nameOf(normalizedName);
+        String value = Objects.isNull(key) ? null : getStringProperty(key);
+        if (Objects.nonNull(value) && Objects.nonNull(accessCounters)) {
+            accessCounters.recordRelaxedHit(normalizedName);
+        }
+        return expandFileReferences(value);
+    }
+
+    /**
+     * Returns the loaded value of a variable when it is a string.
+     *
+     * @param key the name of the variable.
+     * @return the value, or {@code null} if it is not a string.
+     */
+    private String getStringProperty(String key) {
+        return this.source.get(key) instanceof String string ? string : null;
+    }
+
+    /**
+     * Replaces the file references of a value with the content of the files.
+     *
+     * @param value the value to expand.
+     * @return the expanded value.
+     */
+    private String expandFileReferences(String value) {
+        return hasFileReferences ? FileValueCache.getSharedInstance().expand(value) : value;
+    }
+
+    @Override
+    public boolean containsProperty(@NonNull String name) {
+        return Objects.nonNull(DotEnvOverlay.lookup(getName(), name)) || this.source.containsKey(name)
+                || Objects.nonNull(names.nameOf(normalize(name)));
+    }
+
+    /**
+     * Returns the relaxed name index of this property source, built on each
+     * call.
+     *
+     * @return an unmodifiable map of the normalized variable names to their
+     *         values.
+     */
+    public Map<String, String> getRelaxedNameIndex() {
+        Map<String, String> index = new HashMap<>();
+        for (String normalizedName : names.getNameIndex().names()) {
+            index.put(normalizedName, getStringProperty(names.nameOf(normalizedName)));
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Returns the sorted index of the normalized variable names of this property
+     * source, for prefix queries.
+     *
+     * @return the immutable name index.
+     */
+    public SortedNameIndex getNameIndex() {
+        return names.getNameIndex();
+    }
+
+    /**
+     * Returns the names of the variables of this property source, which other
+     * sources defining the same variables may reuse.
+     *
+     * @return the immutable names.
+     */
+    public DotEnvPropertyNames getNames() {
+        return names;
+    }
+
+    /**
+     * Returns the access counters of this property source.
+     *
+     * @return the access counters, or an empty {@link Optional} if accesses are
+     *         not counted.
+     */
+    public Optional<DotEnvAccessCounters> getAccessCounters() {
+        return Optional.ofNullable(accessCounters);
+    }
+
+    /**
+     * Returns the loader which loaded the variables of this source.
+     *
+     * @return the loader, or an empty {@link Optional} if the variables were
+     *         given directly.
+     */
+    Optional<EnvContextLoader> getLoader() {
+        return Optional.ofNullable(loader);
+    }
+
+    /**
+     * Normalizes a property name into its relaxed form. Letters are lower cased,
+     * the <code>.</code>, <code>_</code> and <code>-</code> separators are all
+     * mapped to <code>.</code> and list indexes such as <code>[0]</code> are
+     * mapped to a <code>.0</code> element.
+     *
+     * @param name The property name to normalize.
+     * @return The normalized name.
+     */
+    static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char ch = name.charAt(i);
+            switch (ch) {
+                case '.', '_', '-', '[' -> sb.append('.');
+                case ']' -> {
+                    // Closing brackets carry no information once the index is
+                    // turned into an element of its own.
+                }
+                default -> sb.append(Character.toLowerCase(ch));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,320 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassReader;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.FieldVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.json.JsonParserFactory;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import io.sysr.springcontext.env.EnvContextLoader;
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+
+/**
+ * The dotenv keys an application reads, collected before the
+ * <code>.env</code> files are loaded so that the
+ * {@link EnvContextLoader#setRequiredKeys(Predicate) loader} skips the others.
+ *
+ * <p>
+ * The keys are collected from:
+ * </p>
+ * <ul>
+ * <li>the properties declared by the
+ * <code>META-INF/spring-configuration-metadata.json</code> and
+ * <code>META-INF/additional-spring-configuration-metadata.json</code> files of
+ * the classpath, every key below a map or a collection property included;</li>
+ * <li>the <code>${...}</code> placeholders of the {@code @Value} annotations of
+ * the classes of the scanned packages, read from the class files without
+ * loading the classes;</li>
+ * <li>the <code>${...}</code> placeholders of the values of the application
+ * configuration, such as <code>application.properties</code>;</li>
+ * <li>the keys listed explicitly, for the ones read through other means.</li>
+ * </ul>
+ *
+ * <p>
+ * A dotenv key is required when its relaxed name, as normalized by
+ * {@link DotEnvPropertySource}, matches one of the collected names, so that
+ * <code>DATABASE_URL</code> is required by a <code>database.url</code>
+ * property.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * DotEnvRequiredKeys requiredKeys = DotEnvRequiredKeys.collect(environment, classLoader,
+ *         List.of("com.example.app"), List.of("FEATURE_FLAGS"));
+ * loader.setRequiredKeys(requiredKeys);
+ * loader.load();
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class DotEnvRequiredKeys implements Predicate<String> {
+    private static final Logger logger = LoggerFactory.getLogger(DotEnvRequiredKeys.class);
+    private static final List<String> METADATA_LOCATIONS = List.of(
+            "classpath*:META-INF/spring-configuration-metadata.json",
+            "classpath*:META-INF/additional-spring-configuration-metadata.json");
+    /**
+     * The name of a placeholder, without its default value.
+     */
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([^}:$\\s]+)");
+    /**
+     * The descriptor of the {@code @Value} annotation in class files.
+     */
+    private static final String VALUE_DESCRIPTOR = Type.getDescriptor(Value.class);
+    /**
+     * The class file parts which cannot hold annotations.
+     */
+    private static final int SKIPPED_CLASS_PARTS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG
+            | ClassReader.SKIP_FRAMES;
+    /**
+     * The property sources whose values are not application configuration.
+     */
+    private static final Set<String> SYSTEM_PROPERTY_SOURCES = Set.of(
+            StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME,
+            StandardEnvironment.SYSTEM_PROPERTIES_PROPERTY_SOURCE_NAME,
+            DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+
+    /**
+     * The normalized names of the required keys.
+     */
+    private final Set<String> names;
+    /**
+     * The normalized names of the map and collection properties, whose nested
+     * keys are all required.
+     */
+    private final Set<String> prefixes;
+
+    private DotEnvRequiredKeys(Set<String> names, Set<String> prefixes) {
+        this.names = Set.copyOf(names);
+        this.prefixes = Set.copyOf(prefixes);
+    }
+
+    /**
+     * Collects the keys read by an application.
+     *
+     * @param environment    the environment holding the application
+     *                       configuration.
+     * @param classLoader    the class loader of the application.
+     * @param basePackages   the packages whose classes are scanned for
+     *                       {@code @Value} annotations.
+     * @param additionalKeys the keys to require in addition to the collected
+     *                       ones.
+     * @return the required keys.
+     * @throws EnvContextLoaderException if the classpath cannot be scanned.
+     */
+    public static DotEnvRequiredKeys collect(ConfigurableEnvironment environment, ClassLoader classLoader,
+            Collection<String> basePackages, Collection<String> additionalKeys) {
+        Set<String> names = new HashSet<>();
+        Set<String> prefixes = new HashSet<>();
+        ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(classLoader);
+        try {
+            collectMetadataProperties(resolver, names, prefixes);
+            for (String basePackage : basePackages) {
+                collectValuePlaceholders(resolver, basePackage, names);
+            }
+        } catch (IOException e) {
+            throw new EnvContextLoaderException("The classpath cannot be scanned for the required dotenv keys.", e);
+        }
+        collectConfigurationPlaceholders(environment, names);
+        additionalKeys.forEach(key -> names.add(DotEnvPropertySource.normalize(key.strip())));
+        logger.debug("Collected {} required dotenv names and {} required prefixes", names.size(), prefixes.size());
+        return new DotEnvRequiredKeys(names, prefixes);
+    }
+
+    /**
+     * Returns whether a dotenv key is required.
+     *
+     * @param key the key as declared in the environment files.
+     * @return {@code true} if the key, or a map or collection property holding
+     *         it, is required.
+     */
+    @Override
+    public boolean test(String key) {
+        String normalized = DotEnvPropertySource.normalize(key);
+        if (names.contains(normalized)) {
+            return true;
+        }
+        for (int i = normalized.indexOf('.'); i > 0; i = normalized.indexOf('.', i + 1)) {
+            if (prefixes.contains(normalized.substring(0, i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the normalized names of the required keys.
+     *
+     * @return an unmodifiable set of the names.
+     */
+    public Set<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Adds the properties declared by the configuration metadata files.
+     */
+    private static void collectMetadataProperties(ResourcePatternResolver resolver, Set<String> names,
+            Set<String> prefixes) throws IOException {
+        for (String location : METADATA_LOCATIONS) {
+            for (Resource resource : resolver.getResources(location)) {
+                String content;
+                try (InputStream in = resource.getInputStream()) {
+                    content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                }
+                Object properties = JsonParserFactory.getJsonParser().parseMap(content).get("properties");
+                if (!(properties instanceof List<?> list)) {
+                    continue;
+                }
+                for (Object property : list) {
+                    if (property instanceof Map<?, ?> map && map.get("name") instanceof String name) {
+                        String normalized = DotEnvPropertySource.normalize(name);
+                        names.add(normalized);
+                        if (map.get("type") instanceof String type && isContainerType(type)) {
+                            prefixes.add(normalized);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether a property of the given type holds nested keys.
+     */
+    private static boolean isContainerType(String type) {
+        return type.startsWith("java.util.Map") || type.startsWith("java.util.List")
+                || type.startsWith("java.util.Set") || type.startsWith("java.util.Collection")
+                || type.endsWith("[]");
+    }
+
+    /**
+     * Adds the placeholders of the {@code @Value} annotations of the fields,
+     * methods and parameters of the classes of a package and its subpackages.
+     */
+    private static void collectValuePlaceholders(ResourcePatternResolver resolver, String basePackage,
+            Set<String> names) throws IOException {
+        String pattern = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX + basePackage.strip().replace('.', '/')
+                + "/**/*.class";
+        ValuePlaceholderCollector collector = new ValuePlaceholderCollector(names);
+        for (Resource resource : resolver.getResources(pattern)) {
+            try (InputStream in = resource.getInputStream()) {
+                new ClassReader(in).accept(collector, SKIPPED_CLASS_PARTS);
+            } catch (IllegalArgumentException e) {
+                // Class files of a newer version than ASM supports
+                logger.debug("The class file {} cannot be scanned for @Value placeholders: {}", resource,
+                        e.getLocalizedMessage());
+            }
+        }
+    }
+
+    /**
+     * Adds the placeholders of the values of the application configuration.
+     */
+    private static void collectConfigurationPlaceholders(ConfigurableEnvironment environment, Set<String> names) {
+        for (PropertySource<?> propertySource : environment.getPropertySources()) {
+            if (SYSTEM_PROPERTY_SOURCES.contains(propertySource.getName())
+                    || !(propertySource instanceof EnumerablePropertySource<?> enumerable)) {
+                continue;
+            }
+            for (String name : enumerable.getPropertyNames()) {
+                if (enumerable.getProperty(name) instanceof CharSequence value) {
+                    addPlaceholders(value.toString(), names);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the names of the placeholders of a value, nested placeholders
+     * included.
+     */
+    private static void addPlaceholders(String value, Set<String> names) {
+        Matcher matcher = PLACEHOLDER_PATTERN.matcher(value);
+        while (matcher.find()) {
+            names.add(DotEnvPropertySource.normalize(matcher.group(1)));
+        }
+    }
+
+    /**
+     * Collects the placeholders of the {@code @Value} annotations of the fields,
+     * methods and parameters of a class file.
+     */
+    private static final class ValuePlaceholderCollector extends ClassVisitor {
+        private final Set<String> names;
+        private final FieldVisitor fieldVisitor = new FieldVisitor(SpringAsmInfo.ASM_VERSION) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                return valueVisitor(descriptor);
+            }
+        };
+        private final MethodVisitor methodVisitor = new MethodVisitor(SpringAsmInfo.ASM_VERSION) {
+            @Override
+            public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
+                return valueVisitor(descriptor);
+            }
+
+            @Override
+            public AnnotationVisitor visitParameterAnnotation(int parameter, String descriptor, boolean visible) {
+                return valueVisitor(descriptor);
+            }
+        };
+        private final AnnotationVisitor annotationVisitor = new AnnotationVisitor(SpringAsmInfo.ASM_VERSION) {
+            @Override
+            public void visit(String name, Object value) {
+                if ("value".equals(name) && value instanceof String placeholder) {
+                    addPlaceholders(placeholder, names);
+                }
+            }
+        };
+
+        private ValuePlaceholderCollector(Set<String> names) {
+            super(SpringAsmInfo.ASM_VERSION);
+            this.names = names;
+        }
+
+        @Override
+        public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+            return fieldVisitor;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                String[] exceptions) {
+            return methodVisitor;
+        }
+
+        private AnnotationVisitor valueVisitor(String descriptor) {
+            return VALUE_DESCRIPTOR.equals(descriptor) ? annotationVisitor : null;
+        }
+    }
+}
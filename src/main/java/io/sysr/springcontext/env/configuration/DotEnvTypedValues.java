@@ -0,0 +1,355 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.PropertySources;
+import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.unit.DataSize;
+
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+
+/**
+ * A typed view over a {@link DotEnvPropertySource} which converts each value
+ * once per target type, for the callers reading the values through it.
+ *
+ * <p>
+ * A {@link ConversionService} parses the string value again on every
+ * {@code getProperty(key, type)} call or bind. This view converts the value
+ * of a key to a given type the first time it is requested through
+ * {@link #get(String, Class)} or {@link #getList(String, Class)} and caches the
+ * result, so that refresh scopes and prototype beans injecting the view and
+ * reading the same integers, durations, data sizes, booleans or lists get them
+ * without re-parsing. Cached collections are unmodifiable and cached arrays are copied
+ * on each read, so that a caller can never alter the value seen by the others.
+ * Only the conversions of defined keys are cached, up to
+ * {@value #MAX_CACHED_CONVERSIONS} of them: undefined keys and conversion
+ * failures are looked up again on each request. Failures only report the key
+ * and the target type, never the value, which may be a secret. Within a
+ * {@link DotEnvOverlay}, values are converted on each request and not cached.
+ * </p>
+ *
+ * <p>
+ * The view is not a converter of the environment: Spring Boot's
+ * {@code Binder}, {@code @Value} placeholders and
+ * {@code Environment.getProperty(key, type)} still convert the dotenv values
+ * on each lookup, and only the callers switched to the view benefit from its
+ * cache.
+ * </p>
+ *
+ * <p>
+ * Constructed over {@link PropertySources}, the view converts the values of
+ * the dotenv property source currently registered in them, and starts over
+ * with an empty cache when the source is replaced, for instance by a
+ * {@link DotEnvCracResource} after a restore.
+ * </p>
+ *
+ * <p>
+ * {@link #validate(Map)} converts a set of keys to their expected types in a
+ * single pass and reports every key that fails to convert at once, typically
+ * right after the dotenv files are loaded. Only the given keys are validated.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * DotEnvTypedValues values = new DotEnvTypedValues(propertySource);
+ * values.validate(Map.of("SERVER_PORT", TypeDescriptor.valueOf(Integer.class)));
+ * Duration timeout = values.get("client.timeout", Duration.class);
+ * List<String> hosts = values.getList("HOSTS", String.class);
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public class DotEnvTypedValues {
+    /**
+     * The short names accepted for the common target types by
+     * {@link #resolveType(String)}.
+     */
+    private static final Map<String, TypeDescriptor> TYPE_ALIASES = Map.of(
+            "string", TypeDescriptor.valueOf(String.class),
+            "integer", TypeDescriptor.valueOf(Integer.class),
+            "long", TypeDescriptor.valueOf(Long.class),
+            "double", TypeDescriptor.valueOf(Double.class),
+            "boolean", TypeDescriptor.valueOf(Boolean.class),
+            "duration", TypeDescriptor.valueOf(Duration.class),
+            "data-size", TypeDescriptor.valueOf(DataSize.class),
+            "list", TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(String.class)));
+
+    /**
+     * The maximum number of conversions cached per property source.
+     */
+    public static final int MAX_CACHED_CONVERSIONS = 1024;
+
+    /**
+     * Supplies the property source to convert the values of.
+     */
+    private final Supplier<PropertySource<?>> propertySource;
+    private final ConversionService conversionService;
+    /**
+     * The conversions of the values of the last property source converted.
+     */
+    private volatile ConversionCache cache = new ConversionCache(null, Map.of());
+
+    /**
+     * Constructs a new {@code DotEnvTypedValues} converting with the shared
+     * Spring Boot {@link ApplicationConversionService}, which understands
+     * durations such as <code>10s</code>, data sizes such as <code>10MB</code>
+     * and comma-separated lists.
+     *
+     * @param propertySource the dotenv property source to convert the values of.
+     */
+    public DotEnvTypedValues(@NonNull DotEnvPropertySource propertySource) {
+        this(propertySource, ApplicationConversionService.getSharedInstance());
+    }
+
+    /**
+     * Constructs a new {@code DotEnvTypedValues}.
+     *
+     * @param propertySource    the dotenv property source to convert the values
+     *                          of.
+     * @param conversionService the conversion service converting the values.
+     */
+    public DotEnvTypedValues(@NonNull DotEnvPropertySource propertySource,
+            @NonNull ConversionService conversionService) {
+        this(fixed(propertySource), conversionService);
+    }
+
+    /**
+     * Constructs a new {@code DotEnvTypedValues} converting the values of the
+     * dotenv property source currently registered in the given property sources
+     * with the shared Spring Boot {@link ApplicationConversionService}.
+     *
+     * @param propertySources the property sources holding the dotenv property
+     *                        source, usually the ones of the environment.
+     */
+    public DotEnvTypedValues(@NonNull PropertySources propertySources) {
+        this(propertySources, ApplicationConversionService.getSharedInstance());
+    }
+
+    /**
+     * Constructs a new {@code DotEnvTypedValues} converting the values of the
+     * dotenv property source currently registered in the given property
+     * sources.
+     *
+     * @param propertySources   the property sources holding the dotenv property
+     *                          source, usually the ones of the environment.
+     * @param conversionService the conversion service converting the values.
+     */
+    public DotEnvTypedValues(@NonNull PropertySources propertySources,
+            @NonNull ConversionService conversionService) {
+        this(registered(propertySources), conversionService);
+    }
+
+    private DotEnvTypedValues(Supplier<PropertySource<?>> propertySource, ConversionService conversionService) {
+        this.propertySource = propertySource;
+        this.conversionService = Objects.requireNonNull(conversionService,
+                "The conversion service must not be null");
+    }
+
+    private static Supplier<PropertySource<?>> fixed(DotEnvPropertySource propertySource) {
+        Objects.requireNonNull(propertySource, "The property source must not be null");
+        return () -> propertySource;
+    }
+
+    private static Supplier<PropertySource<?>> registered(PropertySources propertySources) {
+        Objects.requireNonNull(propertySources, "The property sources must not be null");
+        return () -> propertySources.get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+    }
+
+    /**
+     * Returns the value of a key converted to the given type.
+     *
+     * @param <T>  the target type.
+     * @param key  the name of the property, exact or relaxed.
+     * @param type the type to convert the value to.
+     * @return the converted value, or {@code null} if the key is not defined.
+     * @throws EnvContextLoaderException if the value cannot be converted.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, Class<T> type) {
+        return (T) get(key, TypeDescriptor.valueOf(type));
+    }
+
+    /**
+     * Returns the value of a key converted to an unmodifiable list of the given
+     * element type.
+     *
+     * @param <T>         the element type.
+     * @param key         the name of the property, exact or relaxed.
+     * @param elementType the type to convert the elements to.
+     * @return the converted list, or {@code null} if the key is not defined.
+     * @throws EnvContextLoaderException if the value cannot be converted.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getList(String key, Class<T> elementType) {
+        return (List<T>) get(key, TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(elementType)));
+    }
+
+    /**
+     * Returns the value of a key converted to the given type.
+     *
+     * @param key        the name of the property, exact or relaxed.
+     * @param targetType the type to convert the value to.
+     * @return the converted value, or {@code null} if the key is not defined.
+     * @throws EnvContextLoaderException if the value cannot be converted.
+     */
+    public Object get(String key, TypeDescriptor targetType) {
+        CacheKey cacheKey = new CacheKey(key, targetType);
+        ConversionCache current = currentCache();
+        // Values overridden on the current thread are converted without being cached
+        Converted converted = DotEnvOverlay.isBound() ? convert(current.source(), cacheKey)
+                : convertCached(current, cacheKey);
+        if (Objects.nonNull(converted.failure())) {
+            throw converted.failure();
+        }
+        Object value = converted.value();
+        if (Objects.nonNull(value) && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), length);
+            System.arraycopy(value, 0, copy, 0, length);
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * Converts every given key to its expected type and reports all the keys
+     * which fail to convert at once. Keys which are not defined are skipped.
+     *
+     * @param expectedTypes the expected type of each key.
+     * @throws EnvContextLoaderException listing every key which cannot be
+     *                                   converted.
+     */
+    public void validate(Map<String, TypeDescriptor> expectedTypes) {
+        List<String> failures = new ArrayList<>();
+        ConversionCache current = currentCache();
+        expectedTypes.forEach((key, type) -> {
+            Converted converted = convertCached(current, new CacheKey(key, type));
+            if (Objects.nonNull(converted.failure())) {
+                failures.add(converted.failure().getLocalizedMessage());
+            }
+        });
+        if (!failures.isEmpty()) {
+            Collections.sort(failures);
+            throw new EnvContextLoaderException("%d dotenv properties failed validation: %s"
+                    .formatted(failures.size(), String.join("; ", failures)));
+        }
+    }
+
+    /**
+     * Returns the type named by a short alias (<code>string</code>,
+     * <code>integer</code>, <code>long</code>, <code>double</code>,
+     * <code>boolean</code>, <code>duration</code>, <code>data-size</code>,
+     * <code>list</code>) or by a fully qualified class name.
+     *
+     * @param name the alias or the class name.
+     * @return the named type.
+     * @throws EnvContextLoaderException if the class cannot be found.
+     */
+    static TypeDescriptor resolveType(String name) {
+        TypeDescriptor alias = TYPE_ALIASES.get(name.strip().toLowerCase());
+        if (Objects.nonNull(alias)) {
+            return alias;
+        }
+        try {
+            return TypeDescriptor.valueOf(ClassUtils.forName(name.strip(), DotEnvTypedValues.class.getClassLoader()));
+        } catch (ClassNotFoundException | LinkageError e) {
+            throw new EnvContextLoaderException("Unknown dotenv property type %s.".formatted(name), e);
+        }
+    }
+
+    /**
+     * Returns the cache of the current property source, starting an empty one
+     * when the source was replaced.
+     */
+    private ConversionCache currentCache() {
+        PropertySource<?> source = propertySource.get();
+        ConversionCache current = cache;
+        if (current.source() != source) {
+            current = new ConversionCache(source, new ConcurrentHashMap<>());
+            cache = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the cached conversion of a key, converting and caching it when the
+     * key is defined and converts successfully.
+     */
+    private Converted convertCached(ConversionCache current, CacheKey cacheKey) {
+        Converted converted = current.conversions().get(cacheKey);
+        if (Objects.isNull(converted)) {
+            converted = convert(current.source(), cacheKey);
+            if (Objects.nonNull(converted.value())
+                    && current.conversions().size() < MAX_CACHED_CONVERSIONS) {
+                current.conversions().putIfAbsent(cacheKey, converted);
+            }
+        }
+        return converted;
+    }
+
+    private Converted convert(PropertySource<?> source, CacheKey cacheKey) {
+        Object value = Objects.isNull(source) ? null : source.getProperty(cacheKey.key());
+        if (Objects.isNull(value)) {
+            return new Converted(null, null);
+        }
+        try {
+            Object converted = conversionService.convert(value, TypeDescriptor.forObject(value), cacheKey.type());
+            return new Converted(immutable(converted), null);
+        } catch (RuntimeException e) {
+            // Neither the value nor the conversion failure, which usually quotes it, is reported
+            Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+            return new Converted(null, new EnvContextLoaderException("%s cannot be converted to %s (%s)"
+                    .formatted(cacheKey.key(), cacheKey.type(), cause.getClass().getSimpleName())));
+        }
+    }
+
+    private static Object immutable(Object value) {
+        if (value instanceof List<?> list) {
+            return Collections.unmodifiableList(new ArrayList<>(list));
+        }
+        if (value instanceof Set<?> set) {
+            return Collections.unmodifiableSet(new LinkedHashSet<>(set));
+        }
+        if (value instanceof Map<?, ?> map) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(map));
+        }
+        return value;
+    }
+
+    private record CacheKey(String key, TypeDescriptor type) {
+    }
+
+    /**
+     * The conversions of the values of a property source.
+     */
+    private record ConversionCache(PropertySource<?> source, Map<CacheKey, Converted> conversions) {
+    }
+
+    /**
+     * The result of a conversion: the converted value or the failure.
+     */
+    private record Converted(Object value, EnvContextLoaderException failure) {
+    }
+}
@@ -0,0 +1,287 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+import org.springframework.lang.NonNull;
+
+/**
+ * A composite {@link PropertySource} answering the lookups of all the other
+ * property sources of an environment from a precomputed index.
+ *
+ * <p>
+ * With the dotenv property source added last, every lookup of a dotenv key
+ * first misses through the system properties, the system environment and the
+ * application configuration. Registered as the first property source, this
+ * composite looks the name up in an index of the enumerable sources, which
+ * records for every name the first source defining it, and remembers the
+ * winning source of every name it resolved, so that a lookup costs one probe
+ * of the index and one of the winning source.
+ * </p>
+ *
+ * <p>
+ * Spring's precedence semantics are kept: the sources which may answer names
+ * they do not enumerate, such as the relaxed system environment and dotenv
+ * sources or non-enumerable sources, are consulted when they precede the
+ * indexed source, and the system properties, whose names may change at
+ * runtime, are probed on every lookup.
+ * </p>
+ *
+ * <p>
+ * Every lookup checks that the property sources are still the indexed ones,
+ * the same instances in the same order, which costs one comparison per
+ * source, and rebuilds the index when a source was added, removed or
+ * replaced, as Spring Boot does with the servlet stub sources while the
+ * context is refreshed. The names held by an existing source are not checked:
+ * call {@link #refresh()} after changing them.
+ * {@link #install(ConfigurableEnvironment)} refreshes an installed index; the
+ * {@link SpringContextEnvApplicationContextInitializer} does so once the
+ * context is refreshed.
+ * </p>
+ *
+ * <p>
+ * The composite is not enumerable, so that Spring Boot's configuration
+ * property adapters do not enumerate the names of every source a second time
+ * through it.
+ * </p>
+ *
+ * <p>
+ * Only successful lookups are answered by the composite: a name no source
+ * defines still falls through to the other property sources of the
+ * environment.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * PrecedenceIndexPropertySource.install(environment);
+ * environment.getProperty("DATABASE_URL"); // answered by the index
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public class PrecedenceIndexPropertySource extends PropertySource<MutablePropertySources> {
+    /**
+     * The name of the precedence index property source.
+     */
+    public static final String PRECEDENCE_INDEX_PROPERTY_SOURCE_NAME = "springContextPrecedenceIndex";
+    /**
+     * The maximum number of names whose winning source is remembered.
+     */
+    static final int MAX_REMEMBERED_NAMES = 8192;
+    private static final int NO_SOURCE = -1;
+
+    private volatile Index index;
+
+    /**
+     * Constructs a new {@code PrecedenceIndexPropertySource} over the given
+     * property sources and indexes them.
+     *
+     * @param propertySources the property sources to index.
+     */
+    public PrecedenceIndexPropertySource(@NonNull MutablePropertySources propertySources) {
+        super(PRECEDENCE_INDEX_PROPERTY_SOURCE_NAME, propertySources);
+        this.index = new Index(indexedSources(propertySources));
+    }
+
+    /**
+     * Registers a precedence index as the first property source of the given
+     * environment, or refreshes the index it already holds.
+     *
+     * @param environment the environment whose lookups to index.
+     * @return the precedence index of the environment.
+     */
+    public static PrecedenceIndexPropertySource install(ConfigurableEnvironment environment) {
+        MutablePropertySources propertySources = environment.getPropertySources();
+        if (propertySources.get(PRECEDENCE_INDEX_PROPERTY_SOURCE_NAME) instanceof PrecedenceIndexPropertySource existing) {
+            existing.refresh();
+            return existing;
+        }
+        PrecedenceIndexPropertySource propertySource = new PrecedenceIndexPropertySource(propertySources);
+        propertySources.addFirst(propertySource);
+        return propertySource;
+    }
+
+    @Override
+    public Object getProperty(@NonNull String name) {
+        Index current = currentIndex();
+        Integer remembered = current.winners.get(name);
+        int winner = Objects.isNull(remembered) ? current.resolve(name) : remembered;
+        int limit = winner == NO_SOURCE ? current.sources.length : winner;
+        for (int position : current.livePositions) {
+            if (position >= limit) {
+                break;
+            }
+            Object value = current.sources[position].getProperty(name);
+            if (Objects.nonNull(value)) {
+                return value;
+            }
+        }
+        return winner == NO_SOURCE ? null : current.sources[winner].getProperty(name);
+    }
+
+    @Override
+    public boolean containsProperty(@NonNull String name) {
+        return Objects.nonNull(getProperty(name));
+    }
+
+    /**
+     * Rebuilds the index from the current property sources and their content.
+     */
+    public void refresh() {
+        index = new Index(indexedSources(getSource()));
+    }
+
+    /**
+     * Returns the index of the current property sources, rebuilt if a source was
+     * added, removed or replaced since it was built.
+     */
+    private Index currentIndex() {
+        Index current = index;
+        if (!current.isOver(getSource())) {
+            current = new Index(indexedSources(getSource()));
+            index = current;
+        }
+        return current;
+    }
+
+    private static List<PropertySource<?>> indexedSources(MutablePropertySources propertySources) {
+        List<PropertySource<?>> sources = new ArrayList<>();
+        for (PropertySource<?> propertySource : propertySources) {
+            if (!isSkipped(propertySource)) {
+                sources.add(propertySource);
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Returns whether the source is left out of the index: precedence indexes,
+     * and the configuration property sources Spring Boot attaches, which are
+     * views over the other sources.
+     */
+    private static boolean isSkipped(PropertySource<?> propertySource) {
+        return propertySource instanceof PrecedenceIndexPropertySource
+                || ConfigurationPropertySources.isAttachedConfigurationPropertySource(propertySource);
+    }
+
+    /**
+     * Returns whether the source only answers the names it enumerates, and
+     * whether those names are fixed, so that it can be indexed by name alone.
+     */
+    private static boolean isIndexedOnly(PropertySource<?> propertySource) {
+        return propertySource instanceof MapPropertySource
+                && !(propertySource instanceof SystemEnvironmentPropertySource)
+                && !(propertySource instanceof DotEnvPropertySource)
+                && !isLive(propertySource);
+    }
+
+    /**
+     * Returns whether the names of the source may change at runtime, so that it
+     * must be probed on every lookup.
+     */
+    private static boolean isLive(PropertySource<?> propertySource) {
+        return StandardEnvironment.SYSTEM_PROPERTIES_PROPERTY_SOURCE_NAME.equals(propertySource.getName())
+                || !(propertySource instanceof EnumerablePropertySource);
+    }
+
+    /**
+     * An index of the property sources, in precedence order, and the winning
+     * sources remembered since it was built.
+     */
+    private static final class Index {
+        private final PropertySource<?>[] sources;
+        /**
+         * The position of the first enumerable source enumerating each name.
+         */
+        private final Map<String, Integer> positions = new HashMap<>();
+        /**
+         * The positions of the sources which may answer names they do not
+         * enumerate.
+         */
+        private final int[] relaxedPositions;
+        /**
+         * The positions of the sources probed on every lookup.
+         */
+        private final int[] livePositions;
+        private final Map<String, Integer> winners = new ConcurrentHashMap<>();
+
+        private Index(List<PropertySource<?>> sourceList) {
+            this.sources = sourceList.toArray(PropertySource<?>[]::new);
+            List<Integer> relaxed = new ArrayList<>();
+            List<Integer> live = new ArrayList<>();
+            for (int position = 0; position < sources.length; position++) {
+                PropertySource<?> propertySource = sources[position];
+                if (isLive(propertySource)) {
+                    live.add(position);
+                } else if (!isIndexedOnly(propertySource)) {
+                    relaxed.add(position);
+                }
+                if (!isLive(propertySource)
+                        && propertySource instanceof EnumerablePropertySource<?> enumerable) {
+                    for (String name : enumerable.getPropertyNames()) {
+                        positions.putIfAbsent(name, position);
+                    }
+                }
+            }
+            this.relaxedPositions = relaxed.stream().mapToInt(Integer::intValue).toArray();
+            this.livePositions = live.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        /**
+         * Returns whether the index was built over the given property sources,
+         * the same instances in the same order.
+         */
+        private boolean isOver(MutablePropertySources propertySources) {
+            int position = 0;
+            for (PropertySource<?> propertySource : propertySources) {
+                if (isSkipped(propertySource)) {
+                    continue;
+                }
+                if (position == sources.length || sources[position] != propertySource) {
+                    return false;
+                }
+                position++;
+            }
+            return position == sources.length;
+        }
+
+        /**
+         * Finds the first source, live sources excepted, answering the given name
+         * and remembers it.
+         */
+        private int resolve(String name) {
+            int winner = positions.getOrDefault(name, NO_SOURCE);
+            int limit = winner == NO_SOURCE ? sources.length : winner;
+            for (int position : relaxedPositions) {
+                if (position >= limit) {
+                    break;
+                }
+                if (sources[position].containsProperty(name)) {
+                    winner = position;
+                    break;
+                }
+            }
+            if (winners.size() < MAX_REMEMBERED_NAMES) {
+                winners.put(name, winner);
+            }
+            return winner;
+        }
+    }
+}
@@ -1,12 +1,35 @@
 package io.sysr.springcontext.env.configuration;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.PropertySourcesPlaceholdersResolver;
+import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
-import org.springframework.core.env.PropertiesPropertySource;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MutablePropertySources;
 import org.springframework.core.env.PropertySource;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
 
 import io.sysr.springcontext.env.EnvContextLoader;
 
@@ -31,6 +54,13 @@ import io.sysr.springcontext.env.EnvContextLoader;
  * of environment-specific configurations.
  * </p>
  *
+ * <p>
+ * The files are loaded at most once per context hierarchy: when the
+ * environment already holds the dotenv property source, for instance because
+ * {@link SpringContextEnvEnvironmentPostProcessor} ran first, it is kept as
+ * is, and a child context reuses the property source of its parent.
+ * </p>
+ *
  * @author Calvince Otieno
  * @version 1.0.0
  * @since 2024
@@ -38,6 +68,84 @@ import io.sysr.springcontext.env.EnvContextLoader;
 @Order(Ordered.HIGHEST_PRECEDENCE)
 public class SpringContextEnvApplicationContextInitializer
         implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    private static final Logger logger = LoggerFactory.getLogger(SpringContextEnvApplicationContextInitializer.class);
+    /**
+     * The property enabling the per-key access counters of the dotenv property
+     * source. When enabled, a summary of the unused and the most read keys is
+     * logged when the application context is closed.
+     */
+    public static final String ACCESS_COUNTERS_ENABLED_PROPERTY = "springcontext.env.access-counters.enabled";
+    /**
+     * The property registering a {@link PrecedenceIndexPropertySource} as the
+     * first property source of the environment, so that lookups are answered
+     * from a precomputed index instead of a walk across all the sources.
+     */
+    public static final String PRECEDENCE_INDEX_ENABLED_PROPERTY = "springcontext.env.precedence-index.enabled";
+    /**
+     * The property failing the startup when the load of the <code>.env</code>
+     * files found any issue, such as an undefined or an invalid variable.
+     */
+    public static final String FAIL_ON_ISSUES_PROPERTY = "springcontext.env.diagnostics.fail-on-issues";
+    /**
+     * The property registering a {@link DotEnvTypedValues} bean named
+     * {@value #TYPED_VALUES_BEAN_NAME}, which converts each dotenv value once per
+     * target type for the beans reading the values through it. The binder and
+     * the environment do not use it.
+     */
+    public static final String TYPED_VALUES_ENABLED_PROPERTY = "springcontext.env.typed-values.enabled";
+    /**
+     * The prefix of the properties declaring the expected type of dotenv keys,
+     * for instance <code>springcontext.env.typed-values.types[SERVER_PORT]=integer</code>.
+     * The declared keys, and only them, are validated when the context is
+     * initialized.
+     */
+    public static final String TYPED_VALUES_TYPES_PREFIX = "springcontext.env.typed-values.types";
+    /**
+     * The name of the {@link DotEnvTypedValues} bean.
+     */
+    public static final String TYPED_VALUES_BEAN_NAME = "dotEnvTypedValues";
+    /**
+     * The property registering a {@link DotEnvCracResource} with the global
+     * CRaC context, so that the dotenv property source is reloaded after a
+     * restore when the <code>.env</code> files changed since they were loaded.
+     */
+    public static final String CRAC_ENABLED_PROPERTY = "springcontext.env.crac.enabled";
+    /**
+     * The name of the {@link DotEnvCracResource} bean, which keeps the resource
+     * reachable.
+     */
+    public static final String CRAC_RESOURCE_BEAN_NAME = "dotEnvCracResource";
+    /**
+     * The property restricting the load to the dotenv keys the application
+     * reads, as collected by {@link DotEnvRequiredKeys}. The other keys are
+     * skipped and reported.
+     */
+    public static final String DEMAND_LOADING_ENABLED_PROPERTY = "springcontext.env.demand-loading.enabled";
+    /**
+     * The property listing the dotenv keys to load in addition to the collected
+     * ones, for the keys read without a placeholder or a configuration property.
+     */
+    public static final String DEMAND_LOADING_KEYS_PROPERTY = "springcontext.env.demand-loading.keys";
+    /**
+     * The property listing the packages whose classes are scanned for the
+     * placeholders of their {@code @Value} annotations. A Spring Boot
+     * application scans the package of its main class by default.
+     */
+    public static final String DEMAND_LOADING_SCAN_PACKAGES_PROPERTY = "springcontext.env.demand-loading.scan-packages";
+    /**
+     * The property naming the snapshot file shared by the JVMs of the host, for
+     * instance <code>/run/app/env.snapshot</code>. When it is set, the
+     * <code>.env</code> files are loaded with
+     * {@link EnvContextLoader#loadShared(Path)}: a snapshot of the same files is
+     * mapped instead of loading them, and the loaded files are published to it
+     * otherwise. It is ignored when {@value #DEMAND_LOADING_ENABLED_PROPERTY} is
+     * enabled, as the snapshot holds every key.
+     */
+    public static final String SHARED_SNAPSHOT_FILE_PROPERTY = "springcontext.env.shared-snapshot.file";
+    /**
+     * The number of most read keys listed in the access summary.
+     */
+    private static final int HOTTEST_KEYS_LIMIT = 20;
 
     /**
      * Default constructor for the class. Initializes a new instance of
@@ -55,7 +163,62 @@ public class SpringContextEnvApplicationContextInitializer
      * reading of the <code>.env</code> file. It calls
      * {@link EnvContextLoader#load()} to load the properties from the
      * <code>.env</code> file. The loaded properties are then added to the
-     * Spring application context's environment.
+     * Spring application context's environment as a
+     * {@link DotEnvPropertySource}, which also resolves the relaxed forms of the
+     * variable names.
+     * </p>
+     *
+     * <p>
+     * Nothing is loaded when the environment already contains the dotenv
+     * property source. When a parent context holds one, the same property source
+     * is added to this context's environment instead.
+     * </p>
+     *
+     * <p>
+     * When the {@value #ACCESS_COUNTERS_ENABLED_PROPERTY} property is
+     * {@code true}, the property source counts the hits and misses of every key
+     * and the access summary is logged when the context is closed.
+     * </p>
+     *
+     * <p>
+     * When the {@value #PRECEDENCE_INDEX_ENABLED_PROPERTY} property is
+     * {@code true}, a {@link PrecedenceIndexPropertySource} is registered as the
+     * first property source of the environment.
+     * </p>
+     *
+     * <p>
+     * When the {@value #TYPED_VALUES_ENABLED_PROPERTY} property is {@code true},
+     * a {@link DotEnvTypedValues} bean is registered and the keys declared under
+     * {@value #TYPED_VALUES_TYPES_PREFIX} are converted to their types, every
+     * key failing to convert being reported at once. The bean caches the
+     * conversions it makes; the lookups of the binder and of the environment
+     * are not routed through it.
+     * </p>
+     *
+     * <p>
+     * When the {@value #CRAC_ENABLED_PROPERTY} property is {@code true} and the
+     * optional <code>org.crac:crac</code> dependency is on the classpath, a
+     * {@link DotEnvCracResource} is registered with the global CRaC context.
+     * The child contexts reusing the property source are reloaded with it.
+     * </p>
+     *
+     * <p>
+     * When the {@value #SHARED_SNAPSHOT_FILE_PROPERTY} property is set, the
+     * properties are mapped from, or published to, the snapshot file shared by
+     * the JVMs of the host.
+     * </p>
+     *
+     * <p>
+     * When the {@value #DEMAND_LOADING_ENABLED_PROPERTY} property is
+     * {@code true}, only the dotenv keys collected by {@link DotEnvRequiredKeys}
+     * and the keys they reference are loaded.
+     * </p>
+     *
+     * <p>
+     * The initialization is recorded as a
+     * <code>springcontext.env.initialize</code> step of the context's
+     * {@link ApplicationStartup}, tagged with where the property source came
+     * from and its key count. The steps of the load are nested in it.
      * </p>
      * 
      * @param applicationContext the {@link ConfigurableApplicationContext} to
@@ -63,16 +226,233 @@ public class SpringContextEnvApplicationContextInitializer
      * @see EnvContextLoader
      * @see EnvContextLoader#load()
      * @see ConfigurableApplicationContext#getEnvironment()
-     * @see PropertySource
+     * @see DotEnvPropertySource
      */
     @Override
     public void initialize(@NonNull ConfigurableApplicationContext applicationContext) {
+        StartupStep initializeStep = applicationContext.getApplicationStartup().start("springcontext.env.initialize");
+        try {
+            initialize(applicationContext, initializeStep);
+        } finally {
+            initializeStep.end();
+        }
+    }
+
+    /**
+     * Adds the dotenv property source to the context's environment, tagging the
+     * given startup step with where it came from.
+     */
+    private void initialize(ConfigurableApplicationContext applicationContext, StartupStep initializeStep) {
+        ConfigurableEnvironment environment = applicationContext.getEnvironment();
+        MutablePropertySources propertySources = environment.getPropertySources();
+
+        PropertySource<?> existing = propertySources.get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+        PropertySource<?> inherited = findParentPropertySource(applicationContext.getParent());
+        if (Objects.nonNull(inherited) && (Objects.isNull(existing) || existing == inherited)) {
+            // The parent context owns the property source, logs its access summary and reloads it
+            if (Objects.isNull(existing)) {
+                propertySources.addLast(inherited);
+            }
+            if (DotEnvCracRegistrar.isCracPresent(applicationContext.getClassLoader())) {
+                DotEnvCracRegistrar.attachToParentResource(applicationContext);
+            }
+            tagPropertySource(initializeStep, "parent", inherited);
+            installPrecedenceIndexIfEnabled(applicationContext);
+            return;
+        }
+        String origin = "environment";
+        if (Objects.isNull(existing)) {
+            existing = createPropertySource(environment, applicationContext.getApplicationStartup());
+            propertySources.addLast(existing);
+            origin = "loaded";
+        }
+        tagPropertySource(initializeStep, origin, existing);
+        installPrecedenceIndexIfEnabled(applicationContext);
+
+        if (existing instanceof DotEnvPropertySource propertySource) {
+            if (propertySource.getAccessCounters().isPresent()) {
+                // The property source may be replaced by then, the summary is of the current one
+                applicationContext.addApplicationListener((ApplicationListener<ContextClosedEvent>) event -> {
+                    if (propertySources.get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME)
+                            instanceof DotEnvPropertySource current) {
+                        current.getAccessCounters().ifPresent(counters -> logger.info("Dotenv access summary: {}",
+                                counters.summary(HOTTEST_KEYS_LIMIT)));
+                    }
+                });
+            }
+            registerTypedValuesIfEnabled(applicationContext);
+            registerCracResourceIfEnabled(applicationContext, propertySource);
+        }
+    }
+
+    /**
+     * Registers the CRaC resource reloading the dotenv property source after a
+     * restore when {@value #CRAC_ENABLED_PROPERTY} is enabled and the CRaC API
+     * is on the classpath.
+     */
+    private static void registerCracResourceIfEnabled(ConfigurableApplicationContext applicationContext,
+            DotEnvPropertySource propertySource) {
+        ConfigurableEnvironment environment = applicationContext.getEnvironment();
+        if (!environment.getProperty(CRAC_ENABLED_PROPERTY, Boolean.class, false)
+                || applicationContext.getBeanFactory().containsSingleton(CRAC_RESOURCE_BEAN_NAME)) {
+            return;
+        }
+        Optional<EnvContextLoader> loader = propertySource.getLoader();
+        if (loader.isEmpty()) {
+            logger.warn("The dotenv property source was not loaded by an EnvContextLoader, it cannot be reloaded "
+                    + "after a restore");
+            return;
+        }
+        if (!DotEnvCracRegistrar.isCracPresent(applicationContext.getClassLoader())) {
+            logger.warn("{} is enabled but the CRaC API (org.crac:crac) is not on the classpath",
+                    CRAC_ENABLED_PROPERTY);
+            return;
+        }
+        DotEnvCracRegistrar.register(applicationContext, loader.get());
+    }
+
+    /**
+     * Validates the declared dotenv types and registers the typed values bean
+     * when {@value #TYPED_VALUES_ENABLED_PROPERTY} is enabled.
+     */
+    private static void registerTypedValuesIfEnabled(ConfigurableApplicationContext applicationContext) {
+        ConfigurableEnvironment environment = applicationContext.getEnvironment();
+        if (!environment.getProperty(TYPED_VALUES_ENABLED_PROPERTY, Boolean.class, false)) {
+            return;
+        }
+        Map<String, TypeDescriptor> expectedTypes = new LinkedHashMap<>();
+        Binder binder = new Binder(DotEnvConfigurationPropertySource.from(environment.getPropertySources()),
+                new PropertySourcesPlaceholdersResolver(environment));
+        binder.bind(TYPED_VALUES_TYPES_PREFIX, Bindable.mapOf(String.class, String.class))
+                .ifBound(types -> types.forEach(
+                        (key, type) -> expectedTypes.put(key, DotEnvTypedValues.resolveType(type))));
+
+        // Looked up through the environment, so that a reloaded property source is converted
+        DotEnvTypedValues typedValues = new DotEnvTypedValues(environment.getPropertySources());
+        typedValues.validate(expectedTypes);
+        applicationContext.getBeanFactory().registerSingleton(TYPED_VALUES_BEAN_NAME, typedValues);
+    }
+
+    /**
+     * Loads the <code>.env</code> files and creates the dotenv property source,
+     * counting the accesses when {@value #ACCESS_COUNTERS_ENABLED_PROPERTY} is
+     * enabled in the given environment. When {@value #FAIL_ON_ISSUES_PROPERTY}
+     * is enabled, any issue found by the load fails it.
+     *
+     * @param environment        the environment holding the configuration.
+     * @param applicationStartup the application startup recording the load.
+     * @return the new dotenv property source.
+     */
+    static DotEnvPropertySource createPropertySource(ConfigurableEnvironment environment,
+            ApplicationStartup applicationStartup) {
+        return createPropertySource(environment, applicationStartup, ClassUtils.getDefaultClassLoader(), List.of());
+    }
+
+    /**
+     * Loads the <code>.env</code> files and creates the dotenv property source,
+     * scanning the given packages for the required keys when
+     * {@value #DEMAND_LOADING_ENABLED_PROPERTY} is enabled.
+     *
+     * @param environment        the environment holding the configuration.
+     * @param applicationStartup the application startup recording the load.
+     * @param classLoader        the class loader of the application.
+     * @param basePackages       the packages scanned for {@code @Value}
+     *                           placeholders in addition to the ones of
+     *                           {@value #DEMAND_LOADING_SCAN_PACKAGES_PROPERTY}.
+     * @return the new dotenv property source.
+     */
+    static DotEnvPropertySource createPropertySource(ConfigurableEnvironment environment,
+            ApplicationStartup applicationStartup, ClassLoader classLoader, Collection<String> basePackages) {
+        EnvContextLoader loader = createLoader(environment, classLoader, basePackages);
+        loader.setApplicationStartup(applicationStartup);
+        String snapshotFile = environment.getProperty(SHARED_SNAPSHOT_FILE_PROPERTY);
+        if (Objects.isNull(snapshotFile) || snapshotFile.isBlank()) {
+            loader.load();
+        } else if (environment.getProperty(DEMAND_LOADING_ENABLED_PROPERTY, Boolean.class, false)) {
+            logger.warn("{} is ignored as {} is enabled", SHARED_SNAPSHOT_FILE_PROPERTY,
+                    DEMAND_LOADING_ENABLED_PROPERTY);
+            loader.load();
+        } else {
+            loader.loadShared(Path.of(snapshotFile.strip()));
+        }
+        return createPropertySource(environment, loader);
+    }
+
+    /**
+     * Creates the loader of the <code>.env</code> files, restricted to the
+     * required keys when {@value #DEMAND_LOADING_ENABLED_PROPERTY} is enabled.
+     */
+    private static EnvContextLoader createLoader(ConfigurableEnvironment environment, ClassLoader classLoader,
+            Collection<String> basePackages) {
         EnvContextLoader loader = new EnvContextLoader();
-        loader.load();
+        if (environment.getProperty(DEMAND_LOADING_ENABLED_PROPERTY, Boolean.class, false)) {
+            List<String> packages = new ArrayList<>(basePackages);
+            packages.addAll(List.of(environment.getProperty(DEMAND_LOADING_SCAN_PACKAGES_PROPERTY, String[].class,
+                    new String[0])));
+            List<String> keys = List.of(environment.getProperty(DEMAND_LOADING_KEYS_PROPERTY, String[].class,
+                    new String[0]));
+            loader.setRequiredKeys(DotEnvRequiredKeys.collect(environment, classLoader, packages, keys));
+        }
+        return loader;
+    }
+
+    /**
+     * Creates the dotenv property source of the properties loaded by the given
+     * loader, as configured in the given environment.
+     *
+     * @param environment the environment holding the configuration.
+     * @param loader      the loader which loaded the <code>.env</code> files.
+     * @return the new dotenv property source.
+     */
+    static DotEnvPropertySource createPropertySource(ConfigurableEnvironment environment, EnvContextLoader loader) {
+        if (environment.getProperty(FAIL_ON_ISSUES_PROPERTY, Boolean.class, false)) {
+            loader.getDiagnostics().requireNoIssues();
+        }
 
-        PropertySource<?> propertySource = new PropertiesPropertySource("springContextDotEnv",
-                loader.getLoadedProperties());
+        boolean countAccesses = environment.getProperty(ACCESS_COUNTERS_ENABLED_PROPERTY, Boolean.class, false);
+        return new DotEnvPropertySource(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME,
+                loader.getLoadedProperties(), countAccesses, loader);
+    }
+
+    /**
+     * Registers, or refreshes, the precedence index of the context's environment
+     * when {@value #PRECEDENCE_INDEX_ENABLED_PROPERTY} is enabled, and refreshes
+     * it again once the context is refreshed, after the property sources added
+     * or replaced while refreshing, such as the servlet ones.
+     */
+    private static void installPrecedenceIndexIfEnabled(ConfigurableApplicationContext applicationContext) {
+        ConfigurableEnvironment environment = applicationContext.getEnvironment();
+        if (environment.getProperty(PRECEDENCE_INDEX_ENABLED_PROPERTY, Boolean.class, false)) {
+            PrecedenceIndexPropertySource index = PrecedenceIndexPropertySource.install(environment);
+            applicationContext.addApplicationListener(
+                    (ApplicationListener<ContextRefreshedEvent>) event -> index.refresh());
+        }
+    }
 
-        applicationContext.getEnvironment().getPropertySources().addLast(propertySource);
+    /**
+     * Tags a startup step with the origin and the key count of a property source.
+     */
+    private static void tagPropertySource(StartupStep step, String origin, PropertySource<?> propertySource) {
+        step.tag("origin", origin);
+        if (propertySource instanceof DotEnvPropertySource dotEnvPropertySource) {
+            step.tag("keys", () -> String.valueOf(dotEnvPropertySource.getSource().size()));
+        }
+    }
+
+    /**
+     * Returns the dotenv property source of the closest ancestor context holding
+     * one.
+     */
+    private static PropertySource<?> findParentPropertySource(ApplicationContext parent) {
+        for (ApplicationContext context = parent; Objects.nonNull(context); context = context.getParent()) {
+            if (context instanceof ConfigurableApplicationContext configurableContext) {
+                PropertySource<?> propertySource = configurableContext.getEnvironment().getPropertySources()
+                        .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+                if (Objects.nonNull(propertySource)) {
+                    return propertySource;
+                }
+            }
+        }
+        return null;
     }
 }
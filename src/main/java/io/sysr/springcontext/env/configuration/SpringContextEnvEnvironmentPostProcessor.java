@@ -0,0 +1,81 @@
+package io.sysr.springcontext.env.configuration;
+
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.config.ConfigDataEnvironmentPostProcessor;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+import io.sysr.springcontext.env.EnvContextLoader;
+
+/**
+ * A Spring Boot {@link EnvironmentPostProcessor} that loads the
+ * <code>.env</code> files once per {@link SpringApplication} run, before the
+ * application context is created.
+ *
+ * <p>
+ * The {@link DotEnvPropertySource} is added to the environment right after
+ * the application configuration data has been loaded, so that the dotenv
+ * variables keep the lowest precedence while already being available to the
+ * logging system and to any other early configuration. The
+ * {@link SpringContextEnvApplicationContextInitializer} finds the property
+ * source in the environment and does not load the files a second time; child
+ * contexts inherit the property source of their parent.
+ * </p>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public class SpringContextEnvEnvironmentPostProcessor implements EnvironmentPostProcessor, Ordered {
+    /**
+     * The order of this post processor, right after the configuration data have
+     * been loaded.
+     */
+    public static final int ORDER = ConfigDataEnvironmentPostProcessor.ORDER + 1;
+
+    /**
+     * Default constructor for the class. Initializes a new instance of
+     * {@link SpringContextEnvEnvironmentPostProcessor}.
+     */
+    public SpringContextEnvEnvironmentPostProcessor() {
+        super();
+    }
+
+    /**
+     * Loads the <code>.env</code> files with {@link EnvContextLoader} and adds
+     * the {@link DotEnvPropertySource} to the environment, unless the
+     * environment already contains one. The
+     * {@link PrecedenceIndexPropertySource}, when it is enabled, is registered
+     * by the {@link SpringContextEnvApplicationContextInitializer} once Spring
+     * Boot is done arranging the property sources. When demand
+     * loading is enabled, the package of the main application class is scanned
+     * for the required keys. The load is
+     * recorded by the
+     * {@link org.springframework.core.metrics.ApplicationStartup} of the
+     * application.
+     *
+     * @param environment the environment to post-process
+     * @param application the application to which the environment belongs
+     */
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (environment.getPropertySources().contains(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME)) {
+            return;
+        }
+        Class<?> mainApplicationClass = application.getMainApplicationClass();
+        List<String> basePackages = Objects.isNull(mainApplicationClass) ? List.of()
+                : List.of(mainApplicationClass.getPackageName());
+        environment.getPropertySources()
+                .addLast(SpringContextEnvApplicationContextInitializer.createPropertySource(environment,
+                        application.getApplicationStartup(), application.getClassLoader(), basePackages));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,202 @@
+package io.sysr.springcontext.env.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+
+/**
+ * The issues found by a load of the environment files, collected in
+ * structured form instead of being logged one by one.
+ *
+ * <p>
+ * Large generated files may hold thousands of skipped variables. The loader
+ * records every issue with a {@link Collector} and logs a single
+ * {@link #summary(int)} per load, with the count of each kind of issue and a
+ * sample of the variable names. Tools and fail-fast checks read the issues of
+ * the last load from
+ * {@link io.sysr.springcontext.env.EnvContextLoader#getDiagnostics()}. At most
+ * {@value #MAX_RECORDED_ISSUES} issues are kept; the counts cover them all.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * loader.load();
+ * EnvLoadDiagnostics diagnostics = loader.getDiagnostics();
+ * int undefined = diagnostics.count(EnvLoadIssue.Kind.UNDEFINED_VARIABLE);
+ * diagnostics.requireNoIssues(); // fail fast
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class EnvLoadDiagnostics {
+    /**
+     * The maximum number of issues kept by a load.
+     */
+    public static final int MAX_RECORDED_ISSUES = 10_000;
+    /**
+     * The number of variable names listed per kind of issue in the summary
+     * logged by the loader.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 5;
+    private static final EnvLoadDiagnostics EMPTY = new EnvLoadDiagnostics(List.of(),
+            new EnumMap<>(EnvLoadIssue.Kind.class));
+
+    private final List<EnvLoadIssue> issues;
+    private final Map<EnvLoadIssue.Kind, Integer> counts;
+
+    private EnvLoadDiagnostics(List<EnvLoadIssue> issues, Map<EnvLoadIssue.Kind, Integer> counts) {
+        this.issues = issues;
+        this.counts = counts;
+    }
+
+    /**
+     * Returns the diagnostics of a load without any issue.
+     *
+     * @return The empty diagnostics.
+     */
+    public static EnvLoadDiagnostics empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns whether any issue was found.
+     *
+     * @return {@code true} if the load found at least one issue.
+     */
+    public boolean hasIssues() {
+        return !counts.isEmpty();
+    }
+
+    /**
+     * Returns the recorded issues, in the order they were found.
+     *
+     * @return An unmodifiable list of the issues.
+     */
+    public List<EnvLoadIssue> getIssues() {
+        return issues;
+    }
+
+    /**
+     * Returns the recorded issues of the given kind, in the order they were
+     * found.
+     *
+     * @param kind The kind of the issues.
+     * @return An unmodifiable list of the issues of that kind.
+     */
+    public List<EnvLoadIssue> getIssues(EnvLoadIssue.Kind kind) {
+        return issues.stream().filter(issue -> issue.kind() == kind).toList();
+    }
+
+    /**
+     * Returns the number of issues of the given kind, recorded or not.
+     *
+     * @param kind The kind of the issues.
+     * @return The number of issues of that kind.
+     */
+    public int count(EnvLoadIssue.Kind kind) {
+        return counts.getOrDefault(kind, 0);
+    }
+
+    /**
+     * Returns the total number of issues, recorded or not.
+     *
+     * @return The number of issues.
+     */
+    public int count() {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * Returns a single line summary of the issues, with the count of each kind
+     * and a sample of the issues of that kind.
+     *
+     * @param sampleSize The maximum number of issues listed per kind.
+     * @return The summary, e.g.
+     *         <code>UNDEFINED_VARIABLE=2 [DB_HOST (.env), DB_PORT (.env)]</code>.
+     */
+    public String summary(int sampleSize) {
+        StringJoiner summary = new StringJoiner(", ");
+        counts.forEach((kind, count) -> {
+            List<EnvLoadIssue> sample = issues.stream().filter(issue -> issue.kind() == kind).limit(sampleSize)
+                    .toList();
+            StringJoiner names = new StringJoiner(", ", "[", "]");
+            sample.forEach(issue -> names.add(issue.toString()));
+            if (count > sample.size()) {
+                names.add("...");
+            }
+            summary.add("%s=%d %s".formatted(kind, count, names));
+        });
+        return summary.toString();
+    }
+
+    /**
+     * Fails when any issue was found.
+     *
+     * @throws EnvContextLoaderException summarizing the issues, if any.
+     */
+    public void requireNoIssues() {
+        if (hasIssues()) {
+            throw new EnvContextLoaderException("%d issues found while loading the env files: %s"
+                    .formatted(count(), summary(DEFAULT_SAMPLE_SIZE)));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return hasIssues() ? summary(DEFAULT_SAMPLE_SIZE) : "no issues";
+    }
+
+    /**
+     * Collects the issues of a single load. A collector is confined to the
+     * thread running the load.
+     */
+    public static final class Collector {
+        private final List<EnvLoadIssue> issues = new ArrayList<>();
+        private final Map<EnvLoadIssue.Kind, Integer> counts = new EnumMap<>(EnvLoadIssue.Kind.class);
+
+        /**
+         * Constructs a new empty {@code Collector}.
+         */
+        public Collector() {
+            super();
+        }
+
+        /**
+         * Records an issue.
+         *
+         * @param kind   The kind of the issue.
+         * @param source The file or the directory the issue was found in.
+         * @param name   The name of the variable the issue is about, or
+         *               {@code null} when it is about the source itself.
+         */
+        public void record(EnvLoadIssue.Kind kind, String source, String name) {
+            counts.merge(kind, 1, Integer::sum);
+            if (issues.size() < MAX_RECORDED_ISSUES) {
+                issues.add(new EnvLoadIssue(kind, Objects.requireNonNullElse(source, "unknown"), name));
+            }
+        }
+
+        /**
+         * Returns the diagnostics of the issues recorded so far.
+         *
+         * @return The immutable diagnostics.
+         */
+        public EnvLoadDiagnostics build() {
+            if (counts.isEmpty()) {
+                return EMPTY;
+            }
+            return new EnvLoadDiagnostics(List.copyOf(issues), Collections.unmodifiableMap(new EnumMap<>(counts)));
+        }
+    }
+}
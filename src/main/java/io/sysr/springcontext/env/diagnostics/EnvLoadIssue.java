@@ -0,0 +1,72 @@
+package io.sysr.springcontext.env.diagnostics;
+
+import java.util.Objects;
+
+/**
+ * An issue found while loading the environment files, such as a variable
+ * which was skipped because its definition is invalid.
+ *
+ * <p>
+ * Issues never hold the values of the variables, which may be secrets.
+ * </p>
+ *
+ * @param kind     The kind of the issue.
+ * @param source   The file or the directory the issue was found in.
+ * @param name     The name of the variable the issue is about, or
+ *                 {@code null} when it is about the source itself.
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public record EnvLoadIssue(Kind kind, String source, String name) {
+    /**
+     * Constructs a new {@code EnvLoadIssue}.
+     *
+     * @param kind   The kind of the issue.
+     * @param source The file or the directory the issue was found in.
+     * @param name   The name of the variable the issue is about, or {@code null}
+     *               when it is about the source itself.
+     */
+    public EnvLoadIssue {
+        Objects.requireNonNull(kind, "The kind of the issue must not be null");
+        Objects.requireNonNull(source, "The source of the issue must not be null");
+    }
+
+    /**
+     * The kinds of issues found while loading the environment files.
+     */
+    public enum Kind {
+        /**
+         * A variable name which does not match the allowed pattern.
+         */
+        INVALID_NAME,
+        /**
+         * A variable which is neither defined by the files, nor by the system
+         * environment or the system properties, or whose value is blank.
+         */
+        UNDEFINED_VARIABLE,
+        /**
+         * A variable whose value holds a malformed reference such as
+         * <code>${</code> or <code>${}</code>.
+         */
+        INVALID_DEFINITION,
+        /**
+         * A directory to search for environment files which is not found.
+         */
+        MISSING_DIRECTORY,
+        /**
+         * An environment file which is not found.
+         */
+        MISSING_FILE,
+        /**
+         * The <code>dotenv.properties</code> file, which is not found in the
+         * classpath when the environment files are discovered.
+         */
+        MISSING_PROPERTIES_FILE
+    }
+
+    @Override
+    public String toString() {
+        return Objects.isNull(name) ? source : "%s (%s)".formatted(name, source);
+    }
+}
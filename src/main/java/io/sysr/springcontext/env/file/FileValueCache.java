@@ -0,0 +1,315 @@
+package io.sysr.springcontext.env.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+
+/**
+ * A cache of the content of the files referenced by dotenv values of the form
+ * <code>${file:/path/to/secret}</code>.
+ *
+ * <p>
+ * The environment loader keeps file references as they are, so that large
+ * certificates and keys are neither parsed nor held on the heap by services
+ * which never read them. A referenced file is read the first time a value
+ * referencing it is looked up, through a read-only memory mapping when it is
+ * larger than {@value #MAPPED_READ_THRESHOLD_BYTES} bytes, decoded as
+ * <code>UTF-8</code> a chunk at a time and stripped of its trailing
+ * whitespace. The contents are
+ * kept in least recently used order; once their size exceeds the memory
+ * budget, the least recently used contents are evicted and read again on
+ * their next use. A file larger than the whole budget is read on every use.
+ * </p>
+ *
+ * <p>
+ * A relative reference is resolved by the environment loader against the
+ * directory of the <code>.env</code> file declaring it; a value which still
+ * holds a relative reference when it is expanded is rejected, rather than read
+ * relative to the working directory of the process.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * // .env: TLS_CERT=${file:/run/secrets/tls.crt}
+ * String certificate = FileValueCache.getSharedInstance().expand(properties.getProperty("TLS_CERT"));
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public class FileValueCache {
+    private static final Logger logger = LoggerFactory.getLogger(FileValueCache.class);
+    /**
+     * The prefix of a file reference.
+     */
+    public static final String FILE_REFERENCE_PREFIX = "${file:";
+    /**
+     * The memory budget of the shared cache, in bytes.
+     */
+    public static final long DEFAULT_MEMORY_BUDGET_BYTES = 32L * 1024 * 1024;
+    /**
+     * The size from which the files are read through a memory mapping.
+     */
+    static final int MAPPED_READ_THRESHOLD_BYTES = 64 * 1024;
+    /**
+     * The number of characters decoded at a time from a mapped file.
+     */
+    private static final int DECODE_CHUNK_CHARS = 8 * 1024;
+    private static final Pattern FILE_REFERENCE_PATTERN = Pattern.compile("\\$\\{file:([^}]+)}");
+    private static final FileValueCache SHARED_INSTANCE = new FileValueCache(DEFAULT_MEMORY_BUDGET_BYTES);
+
+    private final long memoryBudgetBytes;
+    /**
+     * The cached file contents, from the least to the most recently used.
+     * Guarded by itself.
+     */
+    private final LinkedHashMap<Path, String> contents = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    /**
+     * Constructs a new {@code FileValueCache}.
+     *
+     * @param memoryBudgetBytes The size the cached contents may use, in bytes.
+     */
+    public FileValueCache(long memoryBudgetBytes) {
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive");
+        }
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Returns the cache shared by the dotenv property sources, with a memory
+     * budget of {@value #DEFAULT_MEMORY_BUDGET_BYTES} bytes.
+     *
+     * @return The shared cache.
+     */
+    public static FileValueCache getSharedInstance() {
+        return SHARED_INSTANCE;
+    }
+
+    /**
+     * Returns whether a value holds file references.
+     *
+     * @param value The value to check.
+     * @return {@code true} if the value holds a <code>${file:...}</code>
+     *         reference.
+     */
+    public static boolean hasFileReferences(String value) {
+        return Objects.nonNull(value) && value.contains(FILE_REFERENCE_PREFIX);
+    }
+
+    /**
+     * Resolves the relative file references of a value against a directory,
+     * usually the directory of the <code>.env</code> file declaring the value.
+     *
+     * @param value     The value holding the references.
+     * @param directory The directory relative references are resolved against.
+     * @return The value with absolute file references, or the value itself if it
+     *         holds no relative file reference.
+     */
+    public static String resolveFileReferences(String value, Path directory) {
+        if (!hasFileReferences(value)) {
+            return value;
+        }
+        Matcher matcher = FILE_REFERENCE_PATTERN.matcher(value);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            Path path = Path.of(matcher.group(1).strip());
+            String reference = path.isAbsolute() ? matcher.group()
+                    : FILE_REFERENCE_PREFIX + directory.resolve(path).toAbsolutePath().normalize() + "}";
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(reference));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Replaces every file reference of a value with the content of the file.
+     *
+     * @param value The value to expand.
+     * @return The expanded value, or the value itself if it holds no file
+     *         reference.
+     * @throws EnvContextLoaderException if a reference is relative, or if a
+     *                                   referenced file cannot be read.
+     */
+    public String expand(String value) {
+        if (!hasFileReferences(value)) {
+            return value;
+        }
+        Matcher matcher = FILE_REFERENCE_PATTERN.matcher(value);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            Path path = Path.of(matcher.group(1).strip());
+            if (!path.isAbsolute()) {
+                throw new EnvContextLoaderException(
+                        "The file reference %s is relative to no environment file.".formatted(matcher.group()));
+            }
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(read(path)));
+        }
+        matcher.appendTail(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Returns the content of a file, reading it if it is not cached.
+     *
+     * @param path The path of the file.
+     * @return The content of the file, stripped of its trailing whitespace.
+     * @throws EnvContextLoaderException if the file cannot be read.
+     */
+    public String read(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+        synchronized (contents) {
+            String content = contents.get(key);
+            if (Objects.nonNull(content)) {
+                return content;
+            }
+        }
+        String content = readFile(key);
+        register(key, content);
+        return content;
+    }
+
+    /**
+     * Returns whether the content of a file is cached.
+     *
+     * @param path The path of the file.
+     * @return {@code true} if the content is cached.
+     */
+    public boolean isCached(Path path) {
+        synchronized (contents) {
+            return contents.containsKey(path.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * Returns the size of the cached contents.
+     *
+     * @return The size of the cached contents, in bytes.
+     */
+    public long getCachedBytes() {
+        synchronized (contents) {
+            return cachedBytes;
+        }
+    }
+
+    /**
+     * Evicts every cached content, so that the files are read again on their
+     * next use, for instance after secrets were rotated.
+     */
+    public void clear() {
+        synchronized (contents) {
+            contents.clear();
+            cachedBytes = 0;
+        }
+    }
+
+    /**
+     * Adds a content and evicts the least recently used contents exceeding the
+     * memory budget.
+     */
+    private void register(Path path, String content) {
+        long size = sizeOf(content);
+        if (size > memoryBudgetBytes) {
+            return;
+        }
+        synchronized (contents) {
+            String previous = contents.put(path, content);
+            cachedBytes += size - (Objects.isNull(previous) ? 0 : sizeOf(previous));
+            Iterator<Map.Entry<Path, String>> eldest = contents.entrySet().iterator();
+            while (cachedBytes > memoryBudgetBytes) {
+                Map.Entry<Path, String> evicted = eldest.next();
+                eldest.remove();
+                cachedBytes -= sizeOf(evicted.getValue());
+                logger.debug("Evicted the content of {} to stay within the memory budget", evicted.getKey());
+            }
+        }
+    }
+
+    private static String readFile(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < MAPPED_READ_THRESHOLD_BYTES) {
+                return readSmallFile(channel, (int) size);
+            }
+            return decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new EnvContextLoaderException("The file %s referenced by a dotenv variable cannot be read."
+                    .formatted(path), e);
+        }
+    }
+
+    /**
+     * Reads a small file from its open channel, up to its end even when it grew
+     * since its size was taken.
+     */
+    private static String readSmallFile(FileChannel channel, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size + 1);
+        while (channel.read(buffer) >= 0) {
+            if (!buffer.hasRemaining()) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+            }
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).stripTrailing();
+    }
+
+    /**
+     * Decodes a mapped file a chunk at a time, so that only the content and a
+     * chunk of characters are held on the heap, not a buffer of the whole file.
+     */
+    private static String decode(MappedByteBuffer buffer) {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chunk = CharBuffer.allocate(DECODE_CHUNK_CHARS);
+        StringBuilder sb = new StringBuilder(buffer.remaining());
+        boolean endOfInput = false;
+        while (true) {
+            CoderResult result = endOfInput ? decoder.flush(chunk) : decoder.decode(buffer, chunk, true);
+            sb.append(chunk.flip());
+            chunk.clear();
+            if (result.isUnderflow()) {
+                if (endOfInput) {
+                    break;
+                }
+                endOfInput = true;
+            }
+        }
+        int length = sb.length();
+        while (length > 0 && Character.isWhitespace(sb.charAt(length - 1))) {
+            length--;
+        }
+        return sb.substring(0, length);
+    }
+
+    /**
+     * Returns the estimated memory used by a content: two bytes per character.
+     */
+    private static long sizeOf(String content) {
+        return 2L * content.length();
+    }
+}
@@ -0,0 +1,355 @@
+package io.sysr.springcontext.env.snapshot;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A snapshot of resolved environment properties stored in a memory-mapped
+ * file, so that the JVMs of a host loading the same environment files can
+ * share a single copy of it.
+ *
+ * <p>
+ * One process publishes the snapshot with
+ * {@link #publish(Path, long, Map)}; the others map it read-only with
+ * {@link #open(Path, long)} and look properties up directly against the
+ * mapped data. The file starts with a versioned header followed by an open
+ * addressing hash table and the UTF-8 encoded entries:
+ * </p>
+ *
+ * <pre>
+ *  0  int   magic
+ *  4  int   format version
+ *  8  long  fingerprint of the source files
+ * 16  int   entry count
+ * 20  int   hash table size (a power of two)
+ * 24  int   used length of the file
+ * 64  hash table slots of (int key hash, int entry offset)
+ *     entries of (int key length, key, int value length, value)
+ * </pre>
+ *
+ * <p>
+ * Publishers write the snapshot to a temporary file of the same directory,
+ * readable by every user so that JVMs running as other users can map it, and
+ * atomically rename it over the snapshot file. A mapped snapshot therefore
+ * never changes: a republish, for the same or for other source files, is only
+ * seen by the snapshots opened after it, and lookups read the mapping without
+ * any synchronization.
+ * </p>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class SharedEnvSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(SharedEnvSnapshot.class);
+    private static final int MAGIC = 0x53434556;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FINGERPRINT_OFFSET = 8;
+    private static final int ENTRY_COUNT_OFFSET = 16;
+    private static final int TABLE_SIZE_OFFSET = 20;
+    private static final int LENGTH_OFFSET = 24;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 8;
+    /**
+     * The permissions of a published snapshot file, readable by the JVMs of
+     * every user of the host.
+     */
+    private static final Set<PosixFilePermission> SNAPSHOT_PERMISSIONS = PosixFilePermissions
+            .fromString("rw-r--r--");
+
+    /**
+     * The read-only mapping of the snapshot file.
+     */
+    private final MappedByteBuffer buffer;
+    private final Map<String, String> mapView = new MappedMap();
+
+    private SharedEnvSnapshot(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Computes the fingerprint of the given environment files from their paths,
+     * sizes and modification times.
+     *
+     * @param envFiles The environment files, in load order.
+     * @return The fingerprint of the files.
+     */
+    public static long fingerprint(List<Path> envFiles) {
+        long hash = 0xcbf29ce484222325L;
+        for (Path path : envFiles) {
+            long size = -1;
+            long modified = -1;
+            try {
+                size = Files.size(path);
+                modified = Files.getLastModifiedTime(path).toMillis();
+            } catch (IOException e) {
+                // A file which cannot be read still contributes its path
+            }
+            for (long part : new long[] { path.toAbsolutePath().toString().hashCode(), size, modified }) {
+                hash = (hash ^ part) * 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Publishes the given properties to the snapshot file, replacing the
+     * snapshot it holds. The snapshot is written to a temporary file which is
+     * then renamed over the snapshot file, so that the snapshots already opened
+     * keep the version they mapped.
+     *
+     * @param file        The path of the snapshot file.
+     * @param fingerprint The fingerprint of the source files of the properties.
+     * @param properties  The resolved properties to publish.
+     * @throws IOException If the snapshot file cannot be written.
+     */
+    public static void publish(Path file, long fingerprint, Map<String, String> properties) throws IOException {
+        int tableSize = Integer.highestOneBit(Math.max(2, properties.size() * 2 - 1)) << 1;
+        int dataOffset = HEADER_SIZE + tableSize * SLOT_SIZE;
+        long length = dataOffset;
+        byte[][] keys = new byte[properties.size()][];
+        byte[][] values = new byte[properties.size()][];
+        int[] hashes = new int[properties.size()];
+        int index = 0;
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+            keys[index] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            values[index] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            hashes[index] = entry.getKey().hashCode();
+            length += 8L + keys[index].length + values[index].length;
+            index++;
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("The snapshot of %d properties is too large to be shared."
+                    .formatted(properties.size()));
+        }
+
+        Path target = file.toAbsolutePath();
+        Path temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            if (Files.getFileStore(temporary).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                // Temporary files are only readable by their owner
+                Files.setPosixFilePermissions(temporary, SNAPSHOT_PERMISSIONS);
+            }
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                buf.putInt(0, MAGIC);
+                buf.putInt(4, FORMAT_VERSION);
+                buf.putLong(FINGERPRINT_OFFSET, fingerprint);
+                buf.putInt(ENTRY_COUNT_OFFSET, properties.size());
+                buf.putInt(TABLE_SIZE_OFFSET, tableSize);
+                buf.putInt(LENGTH_OFFSET, (int) length);
+                int offset = dataOffset;
+                for (int i = 0; i < keys.length; i++) {
+                    int slot = hashes[i] & (tableSize - 1);
+                    while (buf.getInt(HEADER_SIZE + slot * SLOT_SIZE + 4) != 0) {
+                        slot = (slot + 1) & (tableSize - 1);
+                    }
+                    buf.putInt(HEADER_SIZE + slot * SLOT_SIZE, hashes[i]);
+                    buf.putInt(HEADER_SIZE + slot * SLOT_SIZE + 4, offset);
+                    buf.putInt(offset, keys[i].length);
+                    buf.put(offset + 4, keys[i]);
+                    offset += 4 + keys[i].length;
+                    buf.putInt(offset, values[i].length);
+                    buf.put(offset + 4, values[i]);
+                    offset += 4 + values[i].length;
+                }
+                buf.force();
+            }
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps the snapshot file read-only if it holds a snapshot of the given
+     * fingerprint.
+     *
+     * @param file        The path of the snapshot file.
+     * @param fingerprint The expected fingerprint of the source files.
+     * @return The mapped snapshot, or an empty {@link Optional} if the file does
+     *         not exist, is invalid, or holds a snapshot of other source files.
+     */
+    public static Optional<SharedEnvSnapshot> open(Path file, long fingerprint) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            MappedByteBuffer buffer = map(file);
+            validate(buffer);
+            if (buffer.getLong(FINGERPRINT_OFFSET) != fingerprint) {
+                logger.debug("The shared snapshot {} was published for other env files", file);
+                return Optional.empty();
+            }
+            return Optional.of(new SharedEnvSnapshot(buffer));
+        } catch (IOException e) {
+            logger.warn("The shared snapshot {} cannot be used: {}", file, e.getLocalizedMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Looks a property up directly against the mapped data.
+     *
+     * @param key The name of the property.
+     * @return The value of the property, or {@code null} if it is not in the
+     *         snapshot.
+     */
+    public String get(String key) {
+        return find(buffer, key.hashCode(), key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the number of properties in the snapshot.
+     *
+     * @return The number of properties.
+     */
+    public int size() {
+        return buffer.getInt(ENTRY_COUNT_OFFSET);
+    }
+
+    /**
+     * Returns an unmodifiable {@link Map} view of the snapshot. Single key
+     * lookups go directly to the mapped data, iterations decode a copy of all
+     * the entries.
+     *
+     * @return The map view of the snapshot.
+     */
+    public Map<String, String> asMap() {
+        return mapView;
+    }
+
+    /**
+     * Checks that the mapped data is a snapshot of the supported format whose
+     * hash table lies within the mapping.
+     */
+    private static void validate(MappedByteBuffer buf) throws IOException {
+        if (buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a shared env snapshot file.");
+        }
+        if (buf.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version %d.".formatted(buf.getInt(4)));
+        }
+        long length = Integer.toUnsignedLong(buf.getInt(LENGTH_OFFSET));
+        int tableSize = buf.getInt(TABLE_SIZE_OFFSET);
+        if (length > buf.capacity() || tableSize <= 0 || Integer.bitCount(tableSize) != 1
+                || HEADER_SIZE + (long) tableSize * SLOT_SIZE > length) {
+            throw new IOException("The shared env snapshot file is truncated or corrupted.");
+        }
+    }
+
+    private static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("The file is too small to be a shared env snapshot.");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static String find(MappedByteBuffer buf, int hash, byte[] keyBytes) {
+        int tableSize = buf.getInt(TABLE_SIZE_OFFSET);
+        int mask = tableSize - 1;
+        int slot = hash & mask;
+        for (int probe = 0; probe < tableSize; probe++) {
+            int slotOffset = HEADER_SIZE + slot * SLOT_SIZE;
+            int entryOffset = buf.getInt(slotOffset + 4);
+            if (entryOffset == 0) {
+                return null;
+            }
+            if (buf.getInt(slotOffset) == hash && keyEquals(buf, entryOffset, keyBytes)) {
+                int valueOffset = entryOffset + 4 + keyBytes.length;
+                return decode(buf, valueOffset + 4, buf.getInt(valueOffset));
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private static boolean keyEquals(MappedByteBuffer buf, int entryOffset, byte[] keyBytes) {
+        if (buf.getInt(entryOffset) != keyBytes.length) {
+            return false;
+        }
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (buf.get(entryOffset + 4 + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(MappedByteBuffer buf, int offset, int length) {
+        if (length < 0 || offset < 0 || offset > buf.capacity() - length) {
+            throw new IndexOutOfBoundsException(offset);
+        }
+        byte[] bytes = new byte[length];
+        buf.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> readAll(MappedByteBuffer buf) {
+        int entryCount = buf.getInt(ENTRY_COUNT_OFFSET);
+        int offset = HEADER_SIZE + buf.getInt(TABLE_SIZE_OFFSET) * SLOT_SIZE;
+        Map<String, String> entries = new LinkedHashMap<>();
+        for (int i = 0; i < entryCount; i++) {
+            int keyLength = buf.getInt(offset);
+            String key = decode(buf, offset + 4, keyLength);
+            offset += 4 + keyLength;
+            int valueLength = buf.getInt(offset);
+            entries.put(key, decode(buf, offset + 4, valueLength));
+            offset += 4 + valueLength;
+        }
+        return entries;
+    }
+
+    /**
+     * The unmodifiable {@link Map} view of the snapshot.
+     */
+    private final class MappedMap extends AbstractMap<String, String> {
+        @Override
+        public String get(Object key) {
+            return key instanceof String name ? SharedEnvSnapshot.this.get(name) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return Objects.nonNull(get(key));
+        }
+
+        @Override
+        public int size() {
+            return SharedEnvSnapshot.this.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return Collections.unmodifiableMap(readAll(buffer)).entrySet();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package io.sysr.springcontext.env.store;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An immutable version of layered environment properties.
+ *
+ * <p>
+ * Each environment file, and the runtime overrides, is kept as a layer of its
+ * own. A property resolves to its value in the top-most layer that defines it,
+ * and the layer which supplied the value is remembered. Layers and the merged
+ * view are {@link PersistentHashMap}s, so every update returns a new version
+ * sharing its structure with the previous one instead of copying all the
+ * entries. A version is never modified, so readers need no locking.
+ * </p>
+ *
+ * <p>
+ * The {@link #OVERRIDES_LAYER} always stays on top of the file layers, so that
+ * runtime overrides take precedence over reloaded files.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * LayeredPropertyStore base = LayeredPropertyStore.empty()
+ *         .withLayer(".env", Map.of("HOST", "localhost", "PORT", "8080"))
+ *         .withLayer(".env-prod", Map.of("HOST", "sysr.io"));
+ * LayeredPropertyStore tenant = base.withOverride("PORT", "9090");
+ *
+ * base.get("PORT"); // 8080
+ * tenant.get("PORT"); // 9090
+ * tenant.getLayer("HOST"); // Optional[.env-prod]
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class LayeredPropertyStore {
+    /**
+     * The name of the layer holding the runtime overrides.
+     */
+    public static final String OVERRIDES_LAYER = "overrides";
+    private static final LayeredPropertyStore EMPTY = new LayeredPropertyStore(List.of(),
+            PersistentHashMap.empty());
+
+    /**
+     * The layers, from the bottom to the top.
+     */
+    private final List<Layer> layers;
+    /**
+     * The merged view of the layers.
+     */
+    private final PersistentHashMap<String, LayeredValue> merged;
+    private final Map<String, String> mapView = new MergedMap();
+
+    private LayeredPropertyStore(List<Layer> layers, PersistentHashMap<String, LayeredValue> merged) {
+        this.layers = layers;
+        this.merged = merged;
+    }
+
+    /**
+     * Returns the store without any layer.
+     *
+     * @return The empty store.
+     */
+    public static LayeredPropertyStore empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the value of a property in the top-most layer defining it.
+     *
+     * @param key The name of the property.
+     * @return The value of the property, or {@code null} if no layer defines it.
+     */
+    public String get(String key) {
+        LayeredValue layeredValue = merged.get(key);
+        return Objects.isNull(layeredValue) ? null : layeredValue.value();
+    }
+
+    /**
+     * Returns the name of the layer which supplies the value of a property.
+     *
+     * @param key The name of the property.
+     * @return The name of the top-most layer defining the property.
+     */
+    public Optional<String> getLayer(String key) {
+        return Optional.ofNullable(merged.get(key)).map(LayeredValue::layer);
+    }
+
+    /**
+     * Returns the names of the layers, from the bottom to the top.
+     *
+     * @return The layer names.
+     */
+    public List<String> getLayerNames() {
+        return layers.stream().map(Layer::name).toList();
+    }
+
+    /**
+     * Returns the properties defined by a single layer.
+     *
+     * @param layerName The name of the layer.
+     * @return The properties of the layer, or an empty map if there is no such
+     *         layer.
+     */
+    public PersistentHashMap<String, String> getLayerProperties(String layerName) {
+        int index = indexOf(layerName);
+        return index < 0 ? PersistentHashMap.empty() : layers.get(index).properties();
+    }
+
+    /**
+     * Returns the number of distinct properties across all layers.
+     *
+     * @return The number of properties.
+     */
+    public int size() {
+        return merged.size();
+    }
+
+    /**
+     * Returns an unmodifiable {@link Map} view of the merged properties of this
+     * version.
+     *
+     * @return The merged properties.
+     */
+    public Map<String, String> asMap() {
+        return mapView;
+    }
+
+    /**
+     * Returns a new version with the given layer. A layer of the same name is
+     * replaced in place, otherwise the layer is added on top of the file layers.
+     *
+     * @param layerName  The name of the layer.
+     * @param properties The properties of the layer.
+     * @return The new version.
+     */
+    public LayeredPropertyStore withLayer(String layerName, Map<String, String> properties) {
+        return withLayer(layerName, PersistentHashMap.<String, String>empty().plusAll(properties));
+    }
+
+    /**
+     * Returns a new version with the given layer. A layer of the same name is
+     * replaced in place, otherwise the layer is added on top of the file layers.
+     *
+     * @param layerName  The name of the layer.
+     * @param properties The properties of the layer.
+     * @return The new version.
+     */
+    public LayeredPropertyStore withLayer(String layerName, PersistentHashMap<String, String> properties) {
+        Objects.requireNonNull(layerName, "The layer name must not be null");
+        List<Layer> newLayers = new ArrayList<>(layers);
+        int index = indexOf(layerName);
+        Set<String> changedKeys = new HashSet<>();
+        properties.forEach((key, value) -> changedKeys.add(key));
+        if (index >= 0) {
+            layers.get(index).properties().forEach((key, value) -> changedKeys.add(key));
+            newLayers.set(index, new Layer(layerName, properties));
+        } else {
+            int overridesIndex = indexOf(OVERRIDES_LAYER);
+            if (overridesIndex < 0 || OVERRIDES_LAYER.equals(layerName)) {
+                // A new top-most layer wins for all of its keys
+                newLayers.add(new Layer(layerName, properties));
+                PersistentHashMap<String, LayeredValue> newMerged = merged;
+                for (String key : changedKeys) {
+                    newMerged = newMerged.plus(key, new LayeredValue(properties.get(key), layerName));
+                }
+                return new LayeredPropertyStore(List.copyOf(newLayers), newMerged);
+            }
+            newLayers.add(overridesIndex, new Layer(layerName, properties));
+        }
+        return remerge(List.copyOf(newLayers), changedKeys);
+    }
+
+    /**
+     * Returns a new version where the given layer is the top-most file layer. A
+     * layer of the same name is removed from its position first, so that a file
+     * loaded again takes precedence over the files loaded in between.
+     *
+     * @param layerName  The name of the layer.
+     * @param properties The properties of the layer.
+     * @return The new version.
+     */
+    public LayeredPropertyStore withTopLayer(String layerName, PersistentHashMap<String, String> properties) {
+        return withoutLayer(layerName).withLayer(layerName, properties);
+    }
+
+    /**
+     * Returns a new version without the given layer.
+     *
+     * @param layerName The name of the layer to remove.
+     * @return The new version, or this version if there is no such layer.
+     */
+    public LayeredPropertyStore withoutLayer(String layerName) {
+        int index = indexOf(layerName);
+        if (index < 0) {
+            return this;
+        }
+        List<Layer> newLayers = new ArrayList<>(layers);
+        Layer removed = newLayers.remove(index);
+        Set<String> changedKeys = new HashSet<>();
+        removed.properties().forEach((key, value) -> changedKeys.add(key));
+        return remerge(List.copyOf(newLayers), changedKeys);
+    }
+
+    /**
+     * Returns a new version where the given property is overridden.
+     *
+     * @param key   The name of the property.
+     * @param value The overriding value.
+     * @return The new version.
+     */
+    public LayeredPropertyStore withOverride(String key, String value) {
+        return withLayer(OVERRIDES_LAYER, getLayerProperties(OVERRIDES_LAYER).plus(key, value));
+    }
+
+    /**
+     * Returns a new version where the override of the given property is removed,
+     * so that it resolves from the file layers again.
+     *
+     * @param key The name of the property.
+     * @return The new version.
+     */
+    public LayeredPropertyStore withoutOverride(String key) {
+        PersistentHashMap<String, String> overrides = getLayerProperties(OVERRIDES_LAYER);
+        if (!overrides.containsKey(key)) {
+            return this;
+        }
+        PersistentHashMap<String, String> remaining = overrides.minus(key);
+        if (remaining.isEmpty()) {
+            return withoutLayer(OVERRIDES_LAYER);
+        }
+        List<Layer> newLayers = new ArrayList<>(layers);
+        newLayers.set(indexOf(OVERRIDES_LAYER), new Layer(OVERRIDES_LAYER, remaining));
+        return remerge(List.copyOf(newLayers), Set.of(key));
+    }
+
+    /**
+     * Builds the version with the given layers, recomputing the merged value of
+     * the given keys only.
+     */
+    private LayeredPropertyStore remerge(List<Layer> newLayers, Set<String> changedKeys) {
+        PersistentHashMap<String, LayeredValue> newMerged = merged;
+        for (String key : changedKeys) {
+            LayeredValue layeredValue = null;
+            for (int i = newLayers.size() - 1; i >= 0 && Objects.isNull(layeredValue); i--) {
+                String value = newLayers.get(i).properties().get(key);
+                if (Objects.nonNull(value)) {
+                    layeredValue = new LayeredValue(value, newLayers.get(i).name());
+                }
+            }
+            newMerged = Objects.isNull(layeredValue) ? newMerged.minus(key) : newMerged.plus(key, layeredValue);
+        }
+        return new LayeredPropertyStore(newLayers, newMerged);
+    }
+
+    private int indexOf(String layerName) {
+        for (int i = 0; i < layers.size(); i++) {
+            if (layers.get(i).name().equals(layerName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A merged property value and the name of the layer which supplied it.
+     *
+     * @param value The value of the property.
+     * @param layer The name of the layer.
+     */
+    public record LayeredValue(String value, String layer) {
+    }
+
+    /**
+     * A named layer of properties.
+     */
+    private record Layer(String name, PersistentHashMap<String, String> properties) {
+    }
+
+    /**
+     * The unmodifiable {@link Map} view of the merged properties.
+     */
+    private final class MergedMap extends AbstractMap<String, String> {
+        @Override
+        public String get(Object key) {
+            return key instanceof String name ? LayeredPropertyStore.this.get(name) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return merged.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return merged.size();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return merged.entries().stream()
+                            .<Entry<String, String>>map(entry -> new SimpleImmutableEntry<>(entry.getKey(),
+                                    entry.getValue().value()))
+                            .iterator();
+                }
+
+                @Override
+                public int size() {
+                    return merged.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package io.sysr.springcontext.env.store;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable, persistent hash map implemented as a hash array mapped trie.
+ *
+ * <p>
+ * Every update returns a new version of the map which shares all the
+ * untouched nodes of the previous version, so an update copies at most one
+ * node per trie level and costs O(log<sub>32</sub> n). Versions are never
+ * modified once created, which makes them safe to read from any number of
+ * threads without locking.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * PersistentHashMap<String, String> v1 = PersistentHashMap.<String, String>empty().plus("KEY", "VALUE");
+ * PersistentHashMap<String, String> v2 = v1.plus("KEY", "OTHER");
+ * v1.get("KEY"); // VALUE
+ * v2.get("KEY"); // OTHER
+ * }</pre>
+ *
+ * @param <K> The type of the keys, which must not be {@code null}.
+ * @param <V> The type of the values, which must not be {@code null}.
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class PersistentHashMap<K, V> {
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @param <K> The type of the keys.
+     * @param <V> The type of the values.
+     * @return The empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns the number of entries of this version.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether this version has no entries.
+     *
+     * @return {@code true} if the map is empty.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value mapped to the given key.
+     *
+     * @param key The key to look up.
+     * @return The mapped value, or {@code null} if the key is not mapped.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (Objects.isNull(root) || Objects.isNull(key)) {
+            return null;
+        }
+        return (V) root.find(0, spread(key.hashCode()), key);
+    }
+
+    /**
+     * Returns whether the given key is mapped.
+     *
+     * @param key The key to look up.
+     * @return {@code true} if the key is mapped.
+     */
+    public boolean containsKey(Object key) {
+        return Objects.nonNull(get(key));
+    }
+
+    /**
+     * Returns a new version of the map with the given key mapped to the given
+     * value.
+     *
+     * @param key   The key to map.
+     * @param value The value to map.
+     * @return The new version, or this version if the key is already mapped to
+     *         the value.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "The key must not be null");
+        Objects.requireNonNull(value, "The value must not be null");
+        boolean[] added = new boolean[1];
+        Node start = Objects.isNull(root) ? BitmapNode.EMPTY : root;
+        Node newRoot = start.assoc(0, spread(key.hashCode()), key, value, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a new version of the map with all the given entries mapped.
+     *
+     * @param entries The entries to map.
+     * @return The new version.
+     */
+    public PersistentHashMap<K, V> plusAll(Map<? extends K, ? extends V> entries) {
+        PersistentHashMap<K, V> map = this;
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            map = map.plus(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    /**
+     * Returns a new version of the map without the given key.
+     *
+     * @param key The key to remove.
+     * @return The new version, or this version if the key is not mapped.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (Objects.isNull(root) || Objects.isNull(key)) {
+            return this;
+        }
+        Node newRoot = root.without(0, spread(key.hashCode()), key);
+        if (newRoot == root) {
+            return this;
+        }
+        return Objects.isNull(newRoot) ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    /**
+     * Performs the given action for each entry of this version, in no particular
+     * order.
+     *
+     * @param action The action to perform.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (Objects.nonNull(root)) {
+            root.forEach((BiConsumer<Object, Object>) action);
+        }
+    }
+
+    /**
+     * Returns a snapshot list of the entries of this version.
+     *
+     * @return The entries, in no particular order.
+     */
+    public List<Map.Entry<K, V>> entries() {
+        List<Map.Entry<K, V>> entries = new ArrayList<>(size);
+        forEach((key, value) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(key, value)));
+        return entries;
+    }
+
+    /**
+     * Spreads the higher bits of the hash code so that keys whose hash codes only
+     * differ in their high bits do not share their first trie levels.
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * A node of the trie. Keys are stored with their spread hash recomputed on
+     * demand.
+     */
+    private sealed interface Node permits BitmapNode, CollisionNode {
+        Object find(int shift, int hash, Object key);
+
+        Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+        Node without(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> action);
+    }
+
+    /**
+     * A node holding up to 32 slots selected by 5 bits of the hash. The array
+     * holds a pair per occupied slot: a key and its value, or {@code null} and a
+     * sub-node.
+     */
+    private static final class BitmapNode implements Node {
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        private final int bitmap;
+        private final Object[] array;
+
+        private BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int idx = index(bit);
+            Object slotKey = array[2 * idx];
+            Object slotValue = array[2 * idx + 1];
+            if (Objects.isNull(slotKey)) {
+                return ((Node) slotValue).find(shift + BITS, hash, key);
+            }
+            return key.equals(slotKey) ? slotValue : null;
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int idx = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, 2 * idx);
+                newArray[2 * idx] = key;
+                newArray[2 * idx + 1] = value;
+                System.arraycopy(array, 2 * idx, newArray, 2 * idx + 2, array.length - 2 * idx);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+
+            Object slotKey = array[2 * idx];
+            Object slotValue = array[2 * idx + 1];
+            if (Objects.isNull(slotKey)) {
+                Node subNode = ((Node) slotValue).assoc(shift + BITS, hash, key, value, added);
+                return subNode == slotValue ? this : withSlot(idx, null, subNode);
+            }
+            if (key.equals(slotKey)) {
+                return value.equals(slotValue) ? this : withSlot(idx, slotKey, value);
+            }
+            added[0] = true;
+            Node subNode = createNode(shift + BITS, slotKey, slotValue, hash, key, value);
+            return withSlot(idx, null, subNode);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int idx = index(bit);
+            Object slotKey = array[2 * idx];
+            Object slotValue = array[2 * idx + 1];
+            if (Objects.isNull(slotKey)) {
+                Node subNode = ((Node) slotValue).without(shift + BITS, hash, key);
+                if (subNode == slotValue) {
+                    return this;
+                }
+                if (Objects.nonNull(subNode)) {
+                    return withSlot(idx, null, subNode);
+                }
+            } else if (!key.equals(slotKey)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, 2 * idx);
+            System.arraycopy(array, 2 * idx + 2, newArray, 2 * idx, newArray.length - 2 * idx);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (Objects.isNull(array[i])) {
+                    ((Node) array[i + 1]).forEach(action);
+                } else {
+                    action.accept(array[i], array[i + 1]);
+                }
+            }
+        }
+
+        private BitmapNode withSlot(int idx, Object key, Object value) {
+            Object[] newArray = array.clone();
+            newArray[2 * idx] = key;
+            newArray[2 * idx + 1] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private static Node createNode(int shift, Object key1, Object value1, int hash2, Object key2,
+                Object value2) {
+            int hash1 = spread(key1.hashCode());
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] { key1, value1, key2, value2 });
+            }
+            boolean[] added = new boolean[1];
+            return EMPTY.assoc(shift, hash1, key1, value1, added).assoc(shift, hash2, key2, value2, added);
+        }
+    }
+
+    /**
+     * A node holding the keys whose spread hashes are all equal.
+     */
+    private static final class CollisionNode implements Node {
+        private final int hash;
+        private final Object[] array;
+
+        private CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int idx = indexOf(key);
+            return idx < 0 ? null : array[idx + 1];
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Nest this node in a bitmap node at the current level and retry
+                Node nested = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[] { null, this });
+                return nested.assoc(shift, hash, key, value, added);
+            }
+            int idx = indexOf(key);
+            if (idx >= 0) {
+                if (value.equals(array[idx + 1])) {
+                    return this;
+                }
+                Object[] newArray = array.clone();
+                newArray[idx + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int idx = indexOf(key);
+            if (idx < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, idx);
+            System.arraycopy(array, idx + 2, newArray, idx, newArray.length - idx);
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        public void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                action.accept(array[i], array[i + 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package io.sysr.springcontext.env.store;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable index of property names, kept in a sorted array, answering
+ * prefix queries with two binary searches.
+ *
+ * <p>
+ * Spring Boot's binder asks each property source, for every bound
+ * {@code @ConfigurationProperties} bean, whether it holds a name below the
+ * prefix of the bean. Filtering every name for every bean costs time in the
+ * number of names times the number of beans. Names sharing a prefix are
+ * contiguous in sorted order, so the index finds them in logarithmic time and
+ * returns them as a view of its array, without copying them. The index is
+ * built once, when the property source is created.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * SortedNameIndex index = SortedNameIndex.of(List.of("database.url", "database.user", "server.port"));
+ * index.descendantsOf("database"); // [database.url, database.user]
+ * index.hasDescendants("server"); // true
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public final class SortedNameIndex {
+    /**
+     * The separator of the elements of a name.
+     */
+    public static final char SEPARATOR = '.';
+    private static final SortedNameIndex EMPTY = new SortedNameIndex(new String[0]);
+
+    /**
+     * The distinct names, in natural order.
+     */
+    private final String[] names;
+    private final List<String> view;
+
+    private SortedNameIndex(String[] names) {
+        this.names = names;
+        this.view = Collections.unmodifiableList(Arrays.asList(names));
+    }
+
+    /**
+     * Returns the index without any name.
+     *
+     * @return The empty index.
+     */
+    public static SortedNameIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the index of the given names.
+     *
+     * @param names The names to index; duplicates are indexed once.
+     * @return The new index.
+     */
+    public static SortedNameIndex of(Collection<String> names) {
+        if (names.isEmpty()) {
+            return EMPTY;
+        }
+        return new SortedNameIndex(names.stream().distinct().sorted().toArray(String[]::new));
+    }
+
+    /**
+     * Returns the number of indexed names.
+     *
+     * @return The number of names.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the indexed names.
+     *
+     * @return An unmodifiable list of the names, in natural order.
+     */
+    public List<String> names() {
+        return view;
+    }
+
+    /**
+     * Returns whether a name is indexed.
+     *
+     * @param name The name to look up.
+     * @return {@code true} if the name is indexed.
+     */
+    public boolean contains(String name) {
+        return Arrays.binarySearch(names, name) >= 0;
+    }
+
+    /**
+     * Returns the indexed names starting with the given prefix.
+     *
+     * @param prefix The prefix of the names.
+     * @return An unmodifiable list of the names starting with the prefix, in
+     *         natural order.
+     */
+    public List<String> withPrefix(String prefix) {
+        int from = lowerBound(prefix);
+        int to = endOfPrefix(prefix, from);
+        return view.subList(from, to);
+    }
+
+    /**
+     * Returns the indexed names below the given name, that is starting with the
+     * name followed by the {@value #SEPARATOR} separator.
+     *
+     * @param name The ancestor of the names, or an empty name for all the names.
+     * @return An unmodifiable list of the descendants, in natural order.
+     */
+    public List<String> descendantsOf(String name) {
+        return name.isEmpty() ? view : withPrefix(name + SEPARATOR);
+    }
+
+    /**
+     * Returns whether any indexed name is below the given name.
+     *
+     * @param name The ancestor of the names, or an empty name for all the names.
+     * @return {@code true} if the index holds a descendant of the name.
+     */
+    public boolean hasDescendants(String name) {
+        if (name.isEmpty()) {
+            return names.length > 0;
+        }
+        String prefix = name + SEPARATOR;
+        int from = lowerBound(prefix);
+        return from < names.length && names[from].startsWith(prefix);
+    }
+
+    /**
+     * Returns the index of the first name not less than the given key.
+     */
+    private int lowerBound(String key) {
+        int index = Arrays.binarySearch(names, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Returns the index of the first name, from the given index on, which does
+     * not start with the prefix. The names starting with it come first.
+     */
+    private int endOfPrefix(String prefix, int from) {
+        int low = from;
+        int high = names.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (names[middle].startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,439 @@
+package io.sysr.springcontext.env.tenant;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.sysr.springcontext.env.EnvContextLoader;
+import io.sysr.springcontext.env.configuration.DotEnvPropertyNames;
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+
+/**
+ * A registry of the environment properties of many tenants hosted in a single
+ * JVM, each tenant having its own environment directory.
+ *
+ * <p>
+ * The properties of a tenant are loaded with an {@link EnvContextLoader} the
+ * first time they are used, into an isolated {@link DotEnvPropertySource}
+ * named after the tenant. The keys, the values and the normalized names are
+ * shared across the tenants, so that a variable defined identically by
+ * thousands of tenants is held once, and tenants defining the same variables
+ * share their {@link DotEnvPropertyNames}, with the relaxed name index and the
+ * sorted name index. Loaded tenants are kept in least recently used order;
+ * once their estimated memory usage exceeds the memory budget, the least
+ * recently used tenants are evicted and loaded again on their next use.
+ * </p>
+ *
+ * <p>
+ * The estimated memory usage charges a shared string or shared names once,
+ * whatever the number of loaded tenants using them, and releases them along
+ * with the last of these tenants. A tenant whose environment directory does
+ * not exist is rejected rather than loaded empty.
+ * </p>
+ *
+ * <p>
+ * The registry is thread-safe. A tenant used by several threads at once is
+ * loaded a single time, and a property source obtained from the registry stays
+ * valid after its tenant is evicted.
+ * </p>
+ *
+ * <p>
+ * <b> Example usage: </b>
+ * </p>
+ *
+ * <pre>{@code
+ * TenantEnvRegistry registry = new TenantEnvRegistry(Path.of("/etc/tenants"), 64L * 1024 * 1024);
+ * environment.getPropertySources().addLast(registry.getPropertySource("acme"));
+ * String url = registry.getProperty("acme", "DATABASE_URL");
+ * }</pre>
+ *
+ * @author Calvince Otieno
+ * @version 1.0.0
+ * @since 2024
+ */
+public class TenantEnvRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(TenantEnvRegistry.class);
+    /**
+     * The estimated memory used by a property in the property table of each
+     * tenant defining it.
+     */
+    static final long PROPERTY_OVERHEAD_BYTES = 48;
+    /**
+     * The estimated memory used by a shared string besides its characters: the
+     * headers of the string and of its array and the entry of the shared
+     * strings.
+     */
+    static final long SHARED_STRING_OVERHEAD_BYTES = 64;
+    /**
+     * The estimated memory used by a name of shared names besides its
+     * characters: the slots of the sorted arrays and the entry of the relaxed
+     * name index.
+     */
+    static final long SHARED_NAME_OVERHEAD_BYTES = 64;
+
+    private final Function<String, Path> tenantDirectoryResolver;
+    private final long memoryBudgetBytes;
+    /**
+     * The loaded tenants, from the least to the most recently used. Guarded by
+     * itself.
+     */
+    private final LinkedHashMap<String, TenantEntry> tenants = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The loads in progress, so that concurrent first uses of a tenant share a
+     * single load.
+     */
+    private final Map<String, CompletableFuture<TenantEntry>> loading = new ConcurrentHashMap<>();
+    /**
+     * The canonical instances of the keys, values and normalized names of the
+     * loaded tenants, with the number of their uses. Guarded by
+     * {@link #tenants}.
+     */
+    private final Map<String, Shared<String>> sharedStrings = new HashMap<>();
+    /**
+     * The names of the variables of the loaded tenants, by the sorted variable
+     * names, with the number of tenants using them. Guarded by
+     * {@link #tenants}.
+     */
+    private final Map<List<String>, Shared<DotEnvPropertyNames>> sharedNames = new HashMap<>();
+    /**
+     * The estimated memory used by the loaded tenants and by the strings and
+     * names they share. Guarded by {@link #tenants}.
+     */
+    private long estimatedMemoryUsage;
+
+    /**
+     * Constructs a new {@code TenantEnvRegistry} where the environment directory
+     * of a tenant is the sub-directory of the given directory named after the
+     * tenant. A tenant identifier which is not the name of a sub-directory, such
+     * as <code>../other</code> or an absolute path, is rejected with an
+     * {@link IllegalArgumentException}.
+     *
+     * @param tenantsDirPath    The directory holding a directory per tenant.
+     * @param memoryBudgetBytes The estimated memory the loaded tenants may use.
+     */
+    public TenantEnvRegistry(Path tenantsDirPath, long memoryBudgetBytes) {
+        this(tenantId -> resolveTenantDirectory(tenantsDirPath, tenantId), memoryBudgetBytes);
+    }
+
+    /**
+     * Constructs a new {@code TenantEnvRegistry}.
+     *
+     * @param tenantDirectoryResolver The function returning the environment
+     *                                directory of a tenant.
+     * @param memoryBudgetBytes       The estimated memory the loaded tenants may
+     *                                use.
+     */
+    public TenantEnvRegistry(Function<String, Path> tenantDirectoryResolver, long memoryBudgetBytes) {
+        this.tenantDirectoryResolver = Objects.requireNonNull(tenantDirectoryResolver,
+                "The tenant directory resolver must not be null");
+        if (memoryBudgetBytes <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive");
+        }
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    /**
+     * Returns the property source of a tenant, loading the tenant if it is not
+     * loaded yet.
+     *
+     * @param tenantId The identifier of the tenant.
+     * @return The property source of the tenant, named
+     *         {@code springContextDotEnv:<tenantId>}.
+     * @throws EnvContextLoaderException if the environment files of the tenant
+     *                                   cannot be loaded.
+     */
+    public DotEnvPropertySource getPropertySource(String tenantId) {
+        return getEntry(tenantId).propertySource();
+    }
+
+    /**
+     * Returns the value of a property of a tenant, loading the tenant if it is
+     * not loaded yet.
+     *
+     * @param tenantId The identifier of the tenant.
+     * @param key      The name of the property.
+     * @return The value of the property, or {@code null} if the tenant does not
+     *         define it.
+     * @throws EnvContextLoaderException if the environment files of the tenant
+     *                                   cannot be loaded.
+     */
+    public String getProperty(String tenantId, String key) {
+        Object value = getPropertySource(tenantId).getProperty(key);
+        return Objects.isNull(value) ? null : value.toString();
+    }
+
+    /**
+     * Returns whether a tenant is currently loaded.
+     *
+     * @param tenantId The identifier of the tenant.
+     * @return {@code true} if the tenant is loaded.
+     */
+    public boolean isLoaded(String tenantId) {
+        synchronized (tenants) {
+            return tenants.containsKey(tenantId);
+        }
+    }
+
+    /**
+     * Returns the number of loaded tenants.
+     *
+     * @return The number of loaded tenants.
+     */
+    public int getLoadedTenantCount() {
+        synchronized (tenants) {
+            return tenants.size();
+        }
+    }
+
+    /**
+     * Returns the estimated memory used by the loaded tenants.
+     *
+     * @return The estimated memory usage, in bytes.
+     */
+    public long getEstimatedMemoryUsage() {
+        synchronized (tenants) {
+            return estimatedMemoryUsage;
+        }
+    }
+
+    /**
+     * Evicts a tenant, so that its environment files are loaded again on its
+     * next use.
+     *
+     * @param tenantId The identifier of the tenant.
+     */
+    public void evict(String tenantId) {
+        synchronized (tenants) {
+            TenantEntry entry = tenants.remove(tenantId);
+            if (Objects.nonNull(entry)) {
+                release(entry);
+            }
+        }
+    }
+
+    private TenantEntry getEntry(String tenantId) {
+        Objects.requireNonNull(tenantId, "The tenant id must not be null");
+        synchronized (tenants) {
+            TenantEntry entry = tenants.get(tenantId);
+            if (Objects.nonNull(entry)) {
+                return entry;
+            }
+        }
+
+        CompletableFuture<TenantEntry> load = new CompletableFuture<>();
+        CompletableFuture<TenantEntry> inProgress = loading.putIfAbsent(tenantId, load);
+        if (Objects.nonNull(inProgress)) {
+            return join(inProgress);
+        }
+        try {
+            TenantEntry entry;
+            synchronized (tenants) {
+                // Registered by a load which completed after the first look up
+                entry = tenants.get(tenantId);
+            }
+            if (Objects.isNull(entry)) {
+                entry = register(tenantId, load(tenantId));
+            }
+            load.complete(entry);
+            return entry;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(tenantId, load);
+        }
+    }
+
+    /**
+     * Returns the sub-directory of the tenants directory named after a tenant.
+     *
+     * @param tenantsDirPath The directory holding a directory per tenant.
+     * @param tenantId       The identifier of the tenant.
+     * @return The environment directory of the tenant.
+     * @throws IllegalArgumentException if the identifier holds a path separator
+     *                                  or does not name a sub-directory of the
+     *                                  tenants directory.
+     */
+    private static Path resolveTenantDirectory(Path tenantsDirPath, String tenantId) {
+        if (tenantId.isBlank() || tenantId.indexOf('/') >= 0 || tenantId.indexOf('\\') >= 0
+                || Path.of(tenantId).isAbsolute()) {
+            throw new IllegalArgumentException("Invalid tenant id: " + tenantId);
+        }
+        Path tenantsDir = tenantsDirPath.toAbsolutePath().normalize();
+        Path tenantDir = tenantsDir.resolve(tenantId).normalize();
+        if (!tenantDir.startsWith(tenantsDir) || tenantDir.equals(tenantsDir)) {
+            throw new IllegalArgumentException("The tenant id " + tenantId
+                    + " does not name a directory of " + tenantsDir);
+        }
+        return tenantDir;
+    }
+
+    /**
+     * Loads the properties of a tenant.
+     *
+     * @throws IllegalArgumentException if the environment directory of the
+     *                                  tenant does not exist.
+     */
+    private Map<String, String> load(String tenantId) {
+        Path envDirPath = tenantDirectoryResolver.apply(tenantId);
+        if (!Files.isDirectory(envDirPath)) {
+            throw new IllegalArgumentException("The environment directory " + envDirPath + " of tenant " + tenantId
+                    + " does not exist");
+        }
+        EnvContextLoader loader = new EnvContextLoader(envDirPath);
+        loader.load();
+
+        Map<String, String> properties = loader.getLayeredProperties().asMap();
+        logger.debug("Loaded {} properties of tenant {} from {}", properties.size(), tenantId, envDirPath);
+        return properties;
+    }
+
+    /**
+     * Adds a loaded tenant, sharing its strings and names with the other
+     * tenants, and evicts the least recently used tenants exceeding the memory
+     * budget. The tenant just loaded is never evicted.
+     */
+    private TenantEntry register(String tenantId, Map<String, String> properties) {
+        synchronized (tenants) {
+            TenantEntry existing = tenants.get(tenantId);
+            if (Objects.nonNull(existing)) {
+                return existing;
+            }
+            Properties props = new Properties();
+            for (Map.Entry<String, String> entry : properties.entrySet()) {
+                props.put(retain(entry.getKey()), retain(entry.getValue()));
+            }
+            DotEnvPropertyNames names = retainNames(props);
+            TenantEntry entry = new TenantEntry(new DotEnvPropertySource(
+                    DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME + ":" + tenantId, props, names),
+                    PROPERTY_OVERHEAD_BYTES * props.size());
+            tenants.put(tenantId, entry);
+            estimatedMemoryUsage += entry.estimatedSize();
+
+            Iterator<Map.Entry<String, TenantEntry>> eldest = tenants.entrySet().iterator();
+            while (estimatedMemoryUsage > memoryBudgetBytes && tenants.size() > 1) {
+                Map.Entry<String, TenantEntry> evicted = eldest.next();
+                eldest.remove();
+                release(evicted.getValue());
+                logger.debug("Evicted tenant {} to stay within the memory budget", evicted.getKey());
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Releases the memory of an evicted tenant, along with the strings and names
+     * no other loaded tenant uses.
+     */
+    private void release(TenantEntry entry) {
+        estimatedMemoryUsage -= entry.estimatedSize();
+        for (Map.Entry<String, Object> property : entry.propertySource().getSource().entrySet()) {
+            release(property.getKey());
+            release((String) property.getValue());
+        }
+        DotEnvPropertyNames names = entry.propertySource().getNames();
+        Shared<DotEnvPropertyNames> shared = sharedNames.get(names.names());
+        if (Objects.nonNull(shared) && --shared.uses == 0) {
+            sharedNames.remove(names.names());
+            estimatedMemoryUsage -= estimatedSize(names);
+            names.getNameIndex().names().forEach(this::release);
+        }
+    }
+
+    /**
+     * Returns the canonical instance of a string and counts its use, charging
+     * its memory when it is not shared yet.
+     */
+    private String retain(String value) {
+        Shared<String> shared = sharedStrings.get(value);
+        if (Objects.isNull(shared)) {
+            shared = new Shared<>(value);
+            sharedStrings.put(value, shared);
+            estimatedMemoryUsage += SHARED_STRING_OVERHEAD_BYTES + value.length();
+        }
+        shared.uses++;
+        return shared.value;
+    }
+
+    private void release(String value) {
+        Shared<String> shared = sharedStrings.get(value);
+        if (Objects.nonNull(shared) && --shared.uses == 0) {
+            sharedStrings.remove(value);
+            estimatedMemoryUsage -= SHARED_STRING_OVERHEAD_BYTES + value.length();
+        }
+    }
+
+    /**
+     * Returns the names of the variables of a tenant, shared with the tenants
+     * defining the same variables, and counts their use, charging their memory
+     * when they are not shared yet.
+     */
+    private DotEnvPropertyNames retainNames(Properties props) {
+        List<String> sortedNames = props.stringPropertyNames().stream().sorted().toList();
+        Shared<DotEnvPropertyNames> shared = sharedNames.get(sortedNames);
+        if (Objects.isNull(shared)) {
+            // The normalized names are shared with the tenants defining other variables
+            shared = new Shared<>(DotEnvPropertyNames.of(sortedNames, this::retain));
+            sharedNames.put(shared.value.names(), shared);
+            estimatedMemoryUsage += estimatedSize(shared.value);
+        }
+        shared.uses++;
+        return shared.value;
+    }
+
+    /**
+     * Returns the estimated memory used by names besides the characters of the
+     * variable names and of the normalized names, which are shared strings.
+     */
+    private static long estimatedSize(DotEnvPropertyNames names) {
+        return SHARED_NAME_OVERHEAD_BYTES * names.size();
+    }
+
+    private static TenantEntry join(CompletableFuture<TenantEntry> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new EnvContextLoaderException(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * A loaded tenant.
+     *
+     * @param propertySource The property source of the tenant.
+     * @param estimatedSize  The estimated memory used by the tenant, in bytes.
+     */
+    private record TenantEntry(DotEnvPropertySource propertySource, long estimatedSize) {
+    }
+
+    /**
+     * A shared instance and the number of its uses by the loaded tenants.
+     *
+     * @param <T> The type of the instance.
+     */
+    private static final class Shared<T> {
+        private final T value;
+        private int uses;
+
+        private Shared(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.crac.CheckpointException;
+import org.crac.Context;
+import org.crac.Resource;
+import org.crac.RestoreException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.sysr.springcontext.env.configuration.DotEnvCracResource;
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.configuration.DotEnvTypedValues;
+import io.sysr.springcontext.env.configuration.SpringContextEnvApplicationContextInitializer;
+import io.sysr.springcontext.env.file.FileValueCache;
+
+class DotEnvCracResourceTest {
+    private StandardEnvironment environment;
+    private EnvContextLoader loader;
+    private StandInContext crac;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(tempDir.resolve(".env"), "DATABASE_URL=jdbc:checkpoint", StandardCharsets.UTF_8);
+        loader = new EnvContextLoader(tempDir);
+        loader.load();
+        environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new DotEnvPropertySource(loader.getLoadedProperties()));
+        crac = new StandInContext();
+        new DotEnvCracResource(environment, loader).register(crac);
+    }
+
+    @Test
+    void whenTheEnvFilesDidNotChange_thenThePropertySourceIsKeptAfterRestore() throws Exception {
+        PropertySource<?> beforeCheckpoint = environment.getPropertySources()
+                .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+
+        crac.checkpointAndRestore(() -> {
+        });
+
+        assertThat(environment.getPropertySources().get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME))
+                .isSameAs(beforeCheckpoint);
+        assertThat(environment.getProperty("database.url")).isEqualTo("jdbc:checkpoint");
+    }
+
+    @Test
+    void whenTheEnvFilesChangedDuringTheCheckpoint_thenThePropertySourceIsReloaded() throws Exception {
+        Path secret = Files.writeString(tempDir.resolve("api.key"), "checkpoint-key", StandardCharsets.UTF_8);
+        Files.writeString(tempDir.resolve(".env"), "DATABASE_URL=jdbc:checkpoint\nAPI_KEY=${file:" + secret + "}",
+                StandardCharsets.UTF_8);
+        crac.checkpointAndRestore(() -> {
+        });
+        assertThat(environment.getProperty("API_KEY")).isEqualTo("checkpoint-key");
+
+        crac.checkpointAndRestore(() -> {
+            assertThat(FileValueCache.getSharedInstance().isCached(secret)).isFalse();
+            Files.writeString(secret, "restored-key", StandardCharsets.UTF_8);
+            Files.writeString(tempDir.resolve(".env"),
+                    "DATABASE_URL=jdbc:restored\nAPI_KEY=${file:" + secret + "}", StandardCharsets.UTF_8);
+        });
+
+        assertThat(environment.getProperty("DATABASE_URL")).isEqualTo("jdbc:restored");
+        assertThat(environment.getProperty("API_KEY")).isEqualTo("restored-key");
+        assertThat(environment.getPropertySources().get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME))
+                .isInstanceOf(DotEnvPropertySource.class);
+    }
+
+    @Test
+    void whenThePropertySourceIsReloaded_thenTypedValuesReadTheNewSource() throws Exception {
+        DotEnvTypedValues typedValues = new DotEnvTypedValues(environment.getPropertySources());
+        assertThat(typedValues.get("DATABASE_URL", String.class)).isEqualTo("jdbc:checkpoint");
+
+        crac.checkpointAndRestore(() -> Files.writeString(tempDir.resolve(".env"), "DATABASE_URL=jdbc:restored",
+                StandardCharsets.UTF_8));
+
+        assertThat(typedValues.get("DATABASE_URL", String.class)).isEqualTo("jdbc:restored");
+        assertThat(loader.getLoadedFingerprint()).isEqualTo(loader.fingerprintSourceFiles());
+    }
+
+    @Test
+    void whenCracIsEnabled_thenTheInitializerRegistersTheResourceAsABean() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("springcontext-env"));
+        Files.writeString(envDir.resolve(".env"), "KEY1=VALUE1", StandardCharsets.UTF_8);
+        System.setProperty("user.dir", envDir.toAbsolutePath().toString());
+        System.setProperty(SpringContextEnvApplicationContextInitializer.CRAC_ENABLED_PROPERTY, "true");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            new SpringContextEnvApplicationContextInitializer().initialize(context);
+            context.refresh();
+
+            assertThat(context.getBean(SpringContextEnvApplicationContextInitializer.CRAC_RESOURCE_BEAN_NAME))
+                    .isInstanceOf(DotEnvCracResource.class);
+        } finally {
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.CRAC_ENABLED_PROPERTY);
+        }
+    }
+
+    @Test
+    void whenAChildContextReusesThePropertySource_thenItIsReloadedToo() throws Exception {
+        Path envDir = Files.createDirectories(tempDir.resolve("springcontext-env"));
+        Files.writeString(envDir.resolve(".env"), "KEY1=VALUE1", StandardCharsets.UTF_8);
+        System.setProperty("user.dir", envDir.toAbsolutePath().toString());
+        System.setProperty(SpringContextEnvApplicationContextInitializer.CRAC_ENABLED_PROPERTY, "true");
+        try (AnnotationConfigApplicationContext parent = new AnnotationConfigApplicationContext();
+                AnnotationConfigApplicationContext child = new AnnotationConfigApplicationContext()) {
+            SpringContextEnvApplicationContextInitializer initializer = new SpringContextEnvApplicationContextInitializer();
+            initializer.initialize(parent);
+            parent.refresh();
+            child.setParent(parent);
+            initializer.initialize(child);
+            child.refresh();
+            assertThat(child.getEnvironment().getProperty("KEY1")).isEqualTo("VALUE1");
+
+            Files.writeString(envDir.resolve(".env"), "KEY1=RESTORED", StandardCharsets.UTF_8);
+            parent.getBean(DotEnvCracResource.class).afterRestore(null);
+
+            assertThat(parent.getEnvironment().getProperty("KEY1")).isEqualTo("RESTORED");
+            assertThat(child.getEnvironment().getProperty("KEY1")).isEqualTo("RESTORED");
+            assertThat(child.getEnvironment().getPropertySources()
+                    .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME))
+                    .isSameAs(parent.getEnvironment().getPropertySources()
+                            .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME));
+        } finally {
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.CRAC_ENABLED_PROPERTY);
+        }
+    }
+
+    /**
+     * A CRaC context standing in for the global one, which only calls its
+     * resources on a JDK with CRaC support.
+     */
+    private static final class StandInContext extends Context<Resource> {
+        private final List<Resource> resources = new ArrayList<>();
+
+        @Override
+        public void register(Resource resource) {
+            resources.add(resource);
+        }
+
+        @Override
+        public void beforeCheckpoint(Context<? extends Resource> context) throws CheckpointException {
+            for (Resource resource : resources.reversed()) {
+                try {
+                    resource.beforeCheckpoint(this);
+                } catch (Exception e) {
+                    CheckpointException checkpointException = new CheckpointException();
+                    checkpointException.addSuppressed(e);
+                    throw checkpointException;
+                }
+            }
+        }
+
+        @Override
+        public void afterRestore(Context<? extends Resource> context) throws RestoreException {
+            for (Resource resource : resources) {
+                try {
+                    resource.afterRestore(this);
+                } catch (Exception e) {
+                    RestoreException restoreException = new RestoreException();
+                    restoreException.addSuppressed(e);
+                    throw restoreException;
+                }
+            }
+        }
+
+        void checkpointAndRestore(WhileCheckpointed whileCheckpointed) throws Exception {
+            beforeCheckpoint(null);
+            whileCheckpointed.run();
+            afterRestore(null);
+        }
+    }
+
+    @FunctionalInterface
+    private interface WhileCheckpointed {
+        void run() throws Exception;
+    }
+}
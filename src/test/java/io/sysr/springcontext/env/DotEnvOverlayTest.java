@@ -0,0 +1,168 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyState;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.sysr.springcontext.env.configuration.DotEnvConfigurationPropertySource;
+import io.sysr.springcontext.env.configuration.DotEnvOverlay;
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.configuration.DotEnvTypedValues;
+import io.sysr.springcontext.env.tenant.TenantEnvRegistry;
+
+class DotEnvOverlayTest {
+    @TempDir
+    Path tempDir;
+
+    private DotEnvPropertySource propertySource;
+    private StandardEnvironment environment;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("DATABASE_URL", "jdbc:primary");
+        properties.setProperty("SERVER_PORT", "8080");
+        propertySource = new DotEnvPropertySource(properties);
+        environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(propertySource);
+    }
+
+    @Test
+    void whenATaskRunsWithinAnOverlay_thenTheOverridesAreSeenOnlyDuringTheTask() throws Exception {
+        String url = DotEnvOverlay.where("DATABASE_URL", "jdbc:replica")
+                .and("NEW_KEY", "new")
+                .call(() -> {
+                    assertThat(DotEnvOverlay.isBound()).isTrue();
+                    assertThat(propertySource.getProperty("DATABASE_URL")).isEqualTo("jdbc:replica");
+                    assertThat(propertySource.containsProperty("NEW_KEY")).isTrue();
+                    assertThat(environment.getProperty("new.key")).isEqualTo("new");
+                    assertThat(environment.getProperty("SERVER_PORT")).isEqualTo("8080");
+                    assertThat(new Binder(new DotEnvConfigurationPropertySource(propertySource))
+                            .bind("database.url", String.class).get()).isEqualTo("jdbc:replica");
+                    return environment.getProperty("database.url");
+                });
+
+        assertThat(url).isEqualTo("jdbc:replica");
+        assertThat(DotEnvOverlay.isBound()).isFalse();
+        assertThat(propertySource.getProperty("DATABASE_URL")).isEqualTo("jdbc:primary");
+        assertThat(propertySource.containsProperty("NEW_KEY")).isFalse();
+    }
+
+    @Test
+    void whenAnOverlayAddsKeys_thenTheyAreListedAndBoundOnlyOnItsThread() {
+        ConfigurationPropertySources.attach(environment);
+        DotEnvConfigurationPropertySource source = new DotEnvConfigurationPropertySource(propertySource);
+        // Let Spring Boot's adapter cache the names first
+        assertThat(Binder.get(environment).bind("feature", Bindable.mapOf(String.class, String.class)).isBound())
+                .isFalse();
+
+        DotEnvOverlay.where("feature.flags.beta", "on").run(() -> {
+            assertThat(propertySource.getPropertyNames()).contains("feature.flags.beta", "DATABASE_URL");
+            assertThat(Binder.get(environment).bind("feature.flags", Bindable.mapOf(String.class, String.class))
+                    .get()).containsExactly(Map.entry("beta", "on"));
+            assertThat(source.containsDescendantOf(ConfigurationPropertyName.of("feature")))
+                    .isEqualTo(ConfigurationPropertyState.PRESENT);
+            assertThat(new Binder(source).bind("feature.flags", Bindable.mapOf(String.class, String.class))
+                    .get()).containsExactly(Map.entry("beta", "on"));
+        });
+
+        assertThat(propertySource.getPropertyNames()).doesNotContain("feature.flags.beta");
+        assertThat(source.containsDescendantOf(ConfigurationPropertyName.of("feature")))
+                .isEqualTo(ConfigurationPropertyState.ABSENT);
+    }
+
+    @Test
+    void whenAnOverlayValueHoldsAFileReference_thenItIsReturnedAsBound() throws IOException {
+        Path secret = Files.writeString(tempDir.resolve("secret.txt"), "secret", StandardCharsets.UTF_8);
+        String reference = "${file:" + secret.toAbsolutePath() + "}";
+
+        DotEnvOverlay.where("DATABASE_URL", reference).run(() -> {
+            assertThat(propertySource.getProperty("DATABASE_URL")).isEqualTo(reference);
+            assertThat(propertySource.getProperty("database.url")).isEqualTo(reference);
+        });
+    }
+
+    @Test
+    void whenTenantsAreOverlaid_thenOnlyTheBoundSourceSeesTheBindings() throws Exception {
+        for (String tenant : List.of("acme", "globex")) {
+            Path tenantDir = Files.createDirectories(tempDir.resolve(tenant));
+            Files.writeString(tenantDir.resolve(".env"), "DATABASE_URL=jdbc:" + tenant, StandardCharsets.UTF_8);
+        }
+        TenantEnvRegistry registry = new TenantEnvRegistry(tempDir, 1024L * 1024);
+        DotEnvPropertySource acme = registry.getPropertySource("acme");
+
+        DotEnvOverlay.where("DATABASE_URL", "jdbc:application").run(() -> {
+            assertThat(environment.getProperty("DATABASE_URL")).isEqualTo("jdbc:application");
+            assertThat(registry.getProperty("acme", "DATABASE_URL")).isEqualTo("jdbc:acme");
+            assertThat(registry.getProperty("globex", "DATABASE_URL")).isEqualTo("jdbc:globex");
+        });
+
+        String replica = DotEnvOverlay.forSource(acme.getName()).and("DATABASE_URL", "jdbc:acme-replica")
+                .call(() -> {
+                    assertThat(registry.getProperty("globex", "database.url")).isEqualTo("jdbc:globex");
+                    assertThat(environment.getProperty("DATABASE_URL")).isEqualTo("jdbc:primary");
+                    return registry.getProperty("acme", "database.url");
+                });
+        assertThat(replica).isEqualTo("jdbc:acme-replica");
+        assertThat(registry.getProperty("acme", "DATABASE_URL")).isEqualTo("jdbc:acme");
+    }
+
+    @Test
+    void whenOverlaysAreNested_thenTheInnerBindingsAreAddedAndThenRestored() {
+        DotEnvTypedValues typedValues = new DotEnvTypedValues(propertySource);
+        assertThat(typedValues.get("SERVER_PORT", Integer.class)).isEqualTo(8080);
+
+        DotEnvOverlay.where("SERVER_PORT", "9090").and("DATABASE_URL", "jdbc:outer").run(() -> {
+            DotEnvOverlay.where("server.port", "9191").run(() -> {
+                assertThat(environment.getProperty("SERVER_PORT")).isEqualTo("9090");
+                assertThat(environment.getProperty("server.port")).isEqualTo("9191");
+                assertThat(environment.getProperty("DATABASE_URL")).isEqualTo("jdbc:outer");
+            });
+            assertThat(environment.getProperty("server.port")).isEqualTo("9090");
+            assertThat(typedValues.get("SERVER_PORT", Integer.class)).isEqualTo(9090);
+        });
+
+        assertThat(environment.getProperty("server.port")).isEqualTo("8080");
+        assertThat(typedValues.get("SERVER_PORT", Integer.class)).isEqualTo(8080);
+    }
+
+    @Test
+    void whenVirtualThreadsUseDifferentOverlays_thenEachSeesItsOwnValues() throws InterruptedException {
+        Map<Integer, String> seen = new ConcurrentHashMap<>();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            int request = i;
+            workers.add(Thread.startVirtualThread(() -> DotEnvOverlay
+                    .where("DATABASE_URL", "jdbc:tenant-" + request)
+                    .run(() -> {
+                        Thread.yield();
+                        seen.put(request, environment.getProperty("database.url"));
+                    })));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertThat(seen).hasSize(100);
+        seen.forEach((request, url) -> assertThat(url).isEqualTo("jdbc:tenant-" + request));
+        assertThat(environment.getProperty("database.url")).isEqualTo("jdbc:primary");
+    }
+}
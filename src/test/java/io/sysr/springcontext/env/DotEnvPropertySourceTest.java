@@ -0,0 +1,215 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyState;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySourcesPropertyResolver;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.sysr.springcontext.env.configuration.DotEnvAccessCounters;
+import io.sysr.springcontext.env.configuration.DotEnvAccessSnapshot;
+import io.sysr.springcontext.env.configuration.DotEnvConfigurationPropertySource;
+import io.sysr.springcontext.env.configuration.DotEnvPropertyNames;
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+
+class DotEnvPropertySourceTest {
+    private Properties props;
+    private DotEnvPropertySource propertySource;
+
+    @BeforeEach
+    void setUp() {
+        props = new Properties();
+        props.setProperty("DATABASE_URL", "jdbc:h2:mem:db");
+        props.setProperty("SERVER_PORT", "8080");
+        props.setProperty("HOSTS_0", "alpha");
+        props.setProperty("HOSTS_1", "beta");
+        props.setProperty("Key", "VALUE");
+        props.setProperty("KEY", "value");
+        propertySource = new DotEnvPropertySource(props);
+    }
+
+    @Test
+    void whenPropertyIsLookedUpByExactName_thenValueIsReturned() {
+        assertThat(propertySource.getName()).isEqualTo(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+        assertThat(propertySource.getProperty("DATABASE_URL")).isEqualTo("jdbc:h2:mem:db");
+        assertThat(propertySource.getProperty("Key")).isEqualTo("VALUE");
+        assertThat(propertySource.getProperty("KEY")).isEqualTo("value");
+    }
+
+    @Test
+    void whenPropertyIsLookedUpByRelaxedName_thenValueIsReturned() {
+        assertThat(propertySource.getProperty("database.url")).isEqualTo("jdbc:h2:mem:db");
+        assertThat(propertySource.getProperty("database-url")).isEqualTo("jdbc:h2:mem:db");
+        assertThat(propertySource.getProperty("database_url")).isEqualTo("jdbc:h2:mem:db");
+        assertThat(propertySource.getProperty("hosts[1]")).isEqualTo("beta");
+        assertThat(propertySource.containsProperty("server.port")).isTrue();
+    }
+
+    @Test
+    void whenPropertyIsNotDefined_thenNothingIsReturned() {
+        assertThat(propertySource.getProperty("database.user")).isNull();
+        assertThat(propertySource.containsProperty("database.user")).isFalse();
+    }
+
+    @Test
+    void whenNamesCollideOnTheirRelaxedForm_thenTheFirstInNameOrderIsIndexed() {
+        assertThat(propertySource.getProperty("key")).isEqualTo("value");
+    }
+
+    @Test
+    void whenPropertyIsResolvedThroughSpringPlaceholders_thenRelaxedNameIsResolved() {
+        MutablePropertySources propertySources = new MutablePropertySources();
+        propertySources.addLast(propertySource);
+        PropertySourcesPropertyResolver resolver = new PropertySourcesPropertyResolver(propertySources);
+
+        assertThat(resolver.resolvePlaceholders("${database.url}")).isEqualTo("jdbc:h2:mem:db");
+        assertThat(resolver.getProperty("server.port", Integer.class)).isEqualTo(8080);
+    }
+
+    @Test
+    void whenBoundThroughTheConfigurationPropertySource_thenRelaxedNamesAreResolved() {
+        DotEnvConfigurationPropertySource source = new DotEnvConfigurationPropertySource(propertySource);
+        Binder binder = new Binder(source);
+
+        assertThat(binder.bind("database.url", String.class).get()).isEqualTo("jdbc:h2:mem:db");
+        assertThat(binder.bind("server.port", Integer.class).get()).isEqualTo(8080);
+        assertThat(binder.bind("hosts", String[].class).get()).containsExactly("alpha", "beta");
+        assertThat(source.getConfigurationProperty(ConfigurationPropertyName.of("database.user"))).isNull();
+        assertThat(source.stream().map(ConfigurationPropertyName::toString).toList())
+                .containsAll(List.of("database.url", "server.port", "key"));
+    }
+
+    @Test
+    void whenNamesAreQueriedByPrefix_thenTheSortedIndexAnswersWithoutScanning() {
+        DotEnvConfigurationPropertySource source = new DotEnvConfigurationPropertySource(propertySource);
+
+        assertThat(propertySource.getPropertyNames())
+                .containsExactly("DATABASE_URL", "HOSTS_0", "HOSTS_1", "KEY", "Key", "SERVER_PORT");
+        assertThat(propertySource.getNameIndex().descendantsOf("hosts")).containsExactly("hosts.0", "hosts.1");
+        assertThat(propertySource.isImmutable()).isFalse();
+        assertThat(source.containsDescendantOf(ConfigurationPropertyName.of("database")))
+                .isEqualTo(ConfigurationPropertyState.PRESENT);
+        assertThat(source.containsDescendantOf(ConfigurationPropertyName.of("hosts")))
+                .isEqualTo(ConfigurationPropertyState.PRESENT);
+        assertThat(source.containsDescendantOf(ConfigurationPropertyName.of("server.port")))
+                .isEqualTo(ConfigurationPropertyState.ABSENT);
+        assertThat(source.containsDescendantOf(ConfigurationPropertyName.of("data")))
+                .isEqualTo(ConfigurationPropertyState.ABSENT);
+        assertThat(source.containsDescendantOf(ConfigurationPropertyName.EMPTY))
+                .isEqualTo(ConfigurationPropertyState.PRESENT);
+    }
+
+    @Test
+    void whenSourcesDefineTheSameVariables_thenTheyShareTheirNames() {
+        Properties other = new Properties();
+        props.stringPropertyNames().forEach(key -> other.setProperty(key, "other"));
+        other.setProperty("DATABASE_URL", "jdbc:h2:mem:other");
+
+        DotEnvPropertySource shared = new DotEnvPropertySource("shared", other, propertySource.getNames());
+
+        assertThat(shared.getNameIndex()).isSameAs(propertySource.getNameIndex());
+        assertThat(shared.getProperty("database.url")).isEqualTo("jdbc:h2:mem:other");
+        assertThat(propertySource.getProperty("database.url")).isEqualTo("jdbc:h2:mem:db");
+        assertThat(shared.getRelaxedNameIndex()).containsEntry("database.url", "jdbc:h2:mem:other");
+
+        other.setProperty("EXTRA", "extra");
+        DotEnvPropertyNames names = propertySource.getNames();
+        assertThatThrownBy(() -> new DotEnvPropertySource("mismatched", other, names))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void whenEnvironmentSourcesAreAdapted_thenTheDotEnvSourceIsAdaptedInPlace() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(propertySource);
+        ConfigurationPropertySources.attach(environment);
+
+        List<ConfigurationPropertySource> sources = new ArrayList<>();
+        DotEnvConfigurationPropertySource.from(environment.getPropertySources()).forEach(sources::add);
+
+        assertThat(sources).hasSize(3);
+        assertThat(sources.get(2)).isInstanceOf(DotEnvConfigurationPropertySource.class);
+        assertThat(sources.get(2).getUnderlyingSource()).isSameAs(propertySource);
+        assertThat(new Binder(sources).bind("hosts", String[].class).get()).containsExactly("alpha", "beta");
+    }
+
+    @Test
+    void whenAccessesAreNotCounted_thenNoCountersAreAvailable() {
+        assertThat(propertySource.getAccessCounters()).isEmpty();
+    }
+
+    @Test
+    void whenAccessesAreCounted_thenHitsAndMissesArePerKey() {
+        DotEnvPropertySource counted = new DotEnvPropertySource("counted", props, true);
+        counted.getProperty("DATABASE_URL");
+        counted.getProperty("database.url");
+        counted.getProperty("server-port");
+        counted.getProperty("database.user");
+        new DotEnvConfigurationPropertySource(counted)
+                .getConfigurationProperty(ConfigurationPropertyName.of("database.url"));
+
+        DotEnvAccessSnapshot snapshot = counted.getAccessCounters().orElseThrow().snapshot();
+
+        assertThat(snapshot.hits()).containsEntry("DATABASE_URL", 3L).containsEntry("SERVER_PORT", 1L)
+                .containsEntry("HOSTS_0", 0L);
+        assertThat(snapshot.misses()).containsExactly(Map.entry("database.user", 1L));
+        assertThat(snapshot.unusedKeys()).containsExactly("HOSTS_0", "HOSTS_1", "KEY", "Key");
+        assertThat(snapshot.hottestKeys(1)).containsExactly(Map.entry("DATABASE_URL", 3L));
+        assertThat(counted.getAccessCounters().orElseThrow().summary(5))
+                .contains("2 of 6 dotenv keys were read, 1 lookups missed")
+                .contains("DATABASE_URL=3, SERVER_PORT=1")
+                .contains("[HOSTS_0, HOSTS_1, KEY, Key]");
+    }
+
+    @Test
+    void whenManyMissedNamesAreLookedUp_thenOnlyABoundedNumberIsTrackedByName() {
+        DotEnvPropertySource counted = new DotEnvPropertySource("counted", props, true);
+        int lookups = DotEnvAccessCounters.MAX_TRACKED_MISSES + 100;
+        for (int i = 0; i < lookups; i++) {
+            counted.getProperty("missing." + i);
+        }
+
+        DotEnvAccessSnapshot snapshot = counted.getAccessCounters().orElseThrow().snapshot();
+
+        assertThat(snapshot.misses()).hasSize(DotEnvAccessCounters.MAX_TRACKED_MISSES);
+        assertThat(snapshot.untrackedMisses()).isEqualTo(100L);
+        assertThat(snapshot.totalMisses()).isEqualTo(lookups);
+    }
+
+    @Test
+    void whenAccessesAreCountedConcurrently_thenNoAccessIsLost() throws InterruptedException {
+        DotEnvPropertySource counted = new DotEnvPropertySource("counted", props, true);
+        int threads = 8;
+        int lookupsPerThread = 10_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.startVirtualThread(() -> {
+                for (int i = 0; i < lookupsPerThread; i++) {
+                    counted.getProperty(i % 2 == 0 ? "SERVER_PORT" : "server.port");
+                    counted.getProperty("missing");
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        DotEnvAccessSnapshot snapshot = counted.getAccessCounters().orElseThrow().snapshot();
+
+        assertThat(snapshot.hits()).containsEntry("SERVER_PORT", (long) threads * lookupsPerThread);
+        assertThat(snapshot.misses()).containsEntry("missing", (long) threads * lookupsPerThread);
+    }
+}
@@ -0,0 +1,74 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.sysr.springcontext.env.configuration.DotEnvRequiredKeys;
+
+class DotEnvRequiredKeysTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void whenKeysAreCollected_thenTheMetadataPlaceholdersAndAdditionalKeysAreRequired() throws IOException {
+        Path metadata = Files.createDirectories(tempDir.resolve("META-INF"))
+                .resolve("additional-spring-configuration-metadata.json");
+        Files.writeString(metadata, """
+                {"properties": [
+                  {"name": "app.max-connections", "type": "java.lang.Integer"},
+                  {"name": "app.labels", "type": "java.util.Map<java.lang.String,java.lang.String>"}
+                ]}
+                """, StandardCharsets.UTF_8);
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("application",
+                Map.of("spring.datasource.url", "${DB_URL:jdbc:h2:mem:${DB_NAME}}")));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { tempDir.toUri().toURL() },
+                getClass().getClassLoader())) {
+            DotEnvRequiredKeys requiredKeys = DotEnvRequiredKeys.collect(environment, classLoader,
+                    List.of(ValueFixture.class.getPackageName()), List.of("EXTRA_KEY"));
+
+            assertThat(requiredKeys.test("APP_MAX_CONNECTIONS")).isTrue();
+            assertThat(requiredKeys.test("APP_LABELS_TEAM")).isTrue();
+            assertThat(requiredKeys.test("DB_URL")).isTrue();
+            assertThat(requiredKeys.test("DB_NAME")).isTrue();
+            assertThat(requiredKeys.test("PAYMENT_API_KEY")).isTrue();
+            assertThat(requiredKeys.test("PAYMENT_TIMEOUT")).isTrue();
+            assertThat(requiredKeys.test("extra.key")).isTrue();
+            assertThat(requiredKeys.test("APP")).isFalse();
+            assertThat(requiredKeys.test("UNRELATED_KEY")).isFalse();
+        }
+    }
+
+    @Test
+    void whenNothingReferencesAKey_thenItIsNotRequired() {
+        DotEnvRequiredKeys requiredKeys = DotEnvRequiredKeys.collect(new StandardEnvironment(),
+                getClass().getClassLoader(), List.of(), List.of());
+
+        assertThat(requiredKeys.test("PAYMENT_API_KEY")).isFalse();
+        assertThat(requiredKeys.getNames()).doesNotContain("payment.api.key");
+    }
+
+    static class ValueFixture {
+        @Value("${payment.api-key}")
+        String apiKey;
+
+        ValueFixture(@Value("${PAYMENT_TIMEOUT:10s}") String timeout) {
+            this.apiKey = timeout;
+        }
+    }
+}
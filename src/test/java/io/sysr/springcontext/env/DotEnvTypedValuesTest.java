@@ -0,0 +1,162 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.unit.DataSize;
+
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.configuration.DotEnvTypedValues;
+import io.sysr.springcontext.env.configuration.SpringContextEnvApplicationContextInitializer;
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+
+class DotEnvTypedValuesTest {
+    private DotEnvTypedValues typedValues;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.setProperty("SERVER_PORT", "8080");
+        properties.setProperty("CLIENT_TIMEOUT", "10s");
+        properties.setProperty("UPLOAD_LIMIT", "10MB");
+        properties.setProperty("FEATURE_ENABLED", "true");
+        properties.setProperty("HOSTS", "alpha,beta,gamma");
+        properties.setProperty("RETRY_COUNT", "three");
+        properties.setProperty("CACHE_TTL", "forever");
+        typedValues = new DotEnvTypedValues(new DotEnvPropertySource(properties));
+    }
+
+    @Test
+    void whenValuesAreRequested_thenTheyAreConvertedToTheTargetType() {
+        assertThat(typedValues.get("SERVER_PORT", Integer.class)).isEqualTo(8080);
+        assertThat(typedValues.get("server.port", Integer.class)).isEqualTo(8080);
+        assertThat(typedValues.get("CLIENT_TIMEOUT", Duration.class)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(typedValues.get("UPLOAD_LIMIT", DataSize.class)).isEqualTo(DataSize.ofMegabytes(10));
+        assertThat(typedValues.get("FEATURE_ENABLED", Boolean.class)).isTrue();
+        assertThat(typedValues.getList("HOSTS", String.class)).containsExactly("alpha", "beta", "gamma");
+        assertThat(typedValues.get("MISSING", Integer.class)).isNull();
+    }
+
+    @Test
+    void whenAValueIsRequestedTwice_thenTheCachedConversionIsReturned() {
+        Duration timeout = typedValues.get("CLIENT_TIMEOUT", Duration.class);
+        List<String> hosts = typedValues.getList("HOSTS", String.class);
+        String[] hostArray = typedValues.get("HOSTS", String[].class);
+
+        assertThat(typedValues.get("CLIENT_TIMEOUT", Duration.class)).isSameAs(timeout);
+        assertThat(typedValues.getList("HOSTS", String.class)).isSameAs(hosts);
+        assertThatThrownBy(() -> hosts.add("delta")).isInstanceOf(UnsupportedOperationException.class);
+
+        hostArray[0] = "changed";
+        assertThat(typedValues.get("HOSTS", String[].class)).containsExactly("alpha", "beta", "gamma");
+    }
+
+    @Test
+    void whenManyKeysAreRequested_thenOnlyDefinedKeysAreCachedUpToTheLimit() {
+        Properties properties = new Properties();
+        for (int i = 0; i < DotEnvTypedValues.MAX_CACHED_CONVERSIONS + 10; i++) {
+            properties.setProperty("KEY_" + i, String.valueOf(i));
+        }
+        CountingConversionService conversionService = new CountingConversionService();
+        DotEnvTypedValues values = new DotEnvTypedValues(new DotEnvPropertySource(properties), conversionService);
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < DotEnvTypedValues.MAX_CACHED_CONVERSIONS + 10; i++) {
+                assertThat(values.get("KEY_" + i, Integer.class)).isEqualTo(i);
+                assertThat(values.get("MISSING_" + i, Integer.class)).isNull();
+            }
+        }
+
+        // The keys beyond the limit are converted again, the cached ones are not
+        assertThat(conversionService.conversions).isEqualTo(DotEnvTypedValues.MAX_CACHED_CONVERSIONS + 2 * 10);
+    }
+
+    /**
+     * A conversion service counting its conversions.
+     */
+    private static final class CountingConversionService extends DefaultConversionService {
+        private int conversions;
+
+        @Override
+        public Object convert(Object source, TypeDescriptor sourceType, TypeDescriptor targetType) {
+            conversions++;
+            return super.convert(source, sourceType, targetType);
+        }
+    }
+
+    @Test
+    void whenValuesCannotBeConverted_thenValidationReportsThemAllAtOnce() {
+        Map<String, TypeDescriptor> expectedTypes = Map.of(
+                "SERVER_PORT", TypeDescriptor.valueOf(Integer.class),
+                "RETRY_COUNT", TypeDescriptor.valueOf(Integer.class),
+                "CACHE_TTL", TypeDescriptor.valueOf(Duration.class),
+                "MISSING", TypeDescriptor.valueOf(Integer.class));
+
+        assertThatThrownBy(() -> typedValues.validate(expectedTypes))
+                .isInstanceOf(EnvContextLoaderException.class)
+                .hasMessageStartingWith("2 dotenv properties failed validation")
+                .hasMessageContaining("RETRY_COUNT cannot be converted to java.lang.Integer")
+                .hasMessageContaining("CACHE_TTL cannot be converted to java.time.Duration")
+                .hasMessageNotContaining("SERVER_PORT")
+                .hasMessageNotContaining("three")
+                .hasMessageNotContaining("forever");
+        Throwable first = catchThrowable(() -> typedValues.get("RETRY_COUNT", Integer.class));
+        assertThat(first).isInstanceOf(EnvContextLoaderException.class)
+                .hasMessageContaining("RETRY_COUNT cannot be converted")
+                .hasMessageNotContaining("three")
+                .hasNoCause();
+        assertThat(catchThrowable(() -> typedValues.get("RETRY_COUNT", Integer.class))).isNotSameAs(first);
+    }
+
+    @Test
+    void whenTypedValuesAreEnabled_thenTheInitializerValidatesAndRegistersThem() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("springcontext-env"));
+        Files.writeString(envDir.resolve(".env"), "SERVER_PORT=8080\nRETRY_COUNT=three", StandardCharsets.UTF_8);
+        System.setProperty("user.dir", envDir.toAbsolutePath().toString());
+        String serverPortType = SpringContextEnvApplicationContextInitializer.TYPED_VALUES_TYPES_PREFIX
+                + "[SERVER_PORT]";
+        String retryCountType = SpringContextEnvApplicationContextInitializer.TYPED_VALUES_TYPES_PREFIX
+                + "[RETRY_COUNT]";
+        System.setProperty(SpringContextEnvApplicationContextInitializer.TYPED_VALUES_ENABLED_PROPERTY, "true");
+        System.setProperty(serverPortType, "integer");
+        try {
+            try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+                new SpringContextEnvApplicationContextInitializer().initialize(context);
+                context.refresh();
+
+                DotEnvTypedValues values = context.getBean(DotEnvTypedValues.class);
+                assertThat(values.get("server.port", Integer.class)).isEqualTo(8080);
+            }
+
+            System.setProperty(retryCountType, "integer");
+            try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+                assertThatThrownBy(() -> new SpringContextEnvApplicationContextInitializer().initialize(context))
+                        .isInstanceOf(EnvContextLoaderException.class)
+                        .hasMessageContaining("RETRY_COUNT cannot be converted");
+            }
+        } finally {
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.TYPED_VALUES_ENABLED_PROPERTY);
+            System.clearProperty(serverPortType);
+            System.clearProperty(retryCountType);
+        }
+    }
+}
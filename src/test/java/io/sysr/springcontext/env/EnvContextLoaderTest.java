@@ -12,14 +12,29 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
 import java.lang.reflect.InvocationTargetException;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.core.metrics.StartupStep;
 
+import io.sysr.springcontext.env.diagnostics.EnvLoadIssue;
 import io.sysr.springcontext.env.exception.EnvContextLoaderException;
 
 class EnvContextLoaderTest {
@@ -440,4 +455,234 @@ class EnvContextLoaderTest {
                 assertThat(props.getProperty("KEY1000")).isEqualTo("VALUE1000");
                 assertThat(props.getProperty("KEY9999")).isEqualTo("VALUE9999");
         }
-}
\ No newline at end of file
+
+        @Test
+        void whenOneLoaderIsLoadedConcurrentlyOverASharedDirectory_thenEveryLoadSeesTheCompleteResult()
+                        throws IOException, InterruptedException, ExecutionException {
+                Path sharedDir = Files.createDirectories(tempDir.resolve("shared"));
+                StringBuilder content = new StringBuilder();
+                for (int i = 0; i < 500; i++) {
+                        content.append("KEY").append(i).append("=VALUE").append(i).append("\n");
+                        content.append("REF").append(i).append("=${KEY").append(i).append("}-ref\n");
+                }
+                Files.writeString(sharedDir.resolve(".env"), content.toString(), StandardCharsets.UTF_8);
+                Files.writeString(sharedDir.resolve(".env.dev"), "DEV=${KEY1}", StandardCharsets.UTF_8);
+
+                EnvContextLoader sharedLoader = new EnvContextLoader(sharedDir);
+                List<Properties> results = runConcurrently(16, 200, i -> {
+                        sharedLoader.load();
+                        return sharedLoader.getLoadedProperties();
+                });
+
+                assertThat(results).hasSize(200).allSatisfy(props -> {
+                        assertThat(props).hasSize(1001);
+                        assertThat(props.getProperty("KEY499")).isEqualTo("VALUE499");
+                        assertThat(props.getProperty("REF7")).isEqualTo("VALUE7-ref");
+                        assertThat(props.getProperty("DEV")).isEqualTo("VALUE1");
+                });
+        }
+
+        @Test
+        void whenLoadersAreLoadedConcurrentlyOverDisjointDirectories_thenTheirResultsNeverInterleave()
+                        throws IOException, InterruptedException, ExecutionException {
+                int directories = 8;
+                List<EnvContextLoader> loaders = new ArrayList<>();
+                for (int d = 0; d < directories; d++) {
+                        Path dir = Files.createDirectories(tempDir.resolve("tenant" + d));
+                        StringBuilder content = new StringBuilder("OWNER=tenant").append(d).append("\n");
+                        for (int i = 0; i < 100; i++) {
+                                content.append("KEY").append(i).append("=${OWNER}-").append(i).append("\n");
+                        }
+                        content.append("ONLY_").append(d).append("=yes\n");
+                        Files.writeString(dir.resolve(".env"), content.toString(), StandardCharsets.UTF_8);
+                        loaders.add(new EnvContextLoader(dir));
+                }
+
+                List<Properties> results = runConcurrently(16, 400, i -> {
+                        EnvContextLoader loader = loaders.get(i % directories);
+                        loader.load();
+                        Properties props = loader.getLoadedProperties();
+                        props.setProperty("__INDEX", String.valueOf(i % directories));
+                        return props;
+                });
+
+                assertThat(results).hasSize(400).allSatisfy(props -> {
+                        String owner = "tenant" + props.getProperty("__INDEX");
+                        assertThat(props).hasSize(103);
+                        assertThat(props.getProperty("OWNER")).isEqualTo(owner);
+                        assertThat(props.getProperty("KEY42")).isEqualTo(owner + "-42");
+                        assertThat(props.getProperty("ONLY_" + props.getProperty("__INDEX"))).isEqualTo("yes");
+                });
+        }
+
+        @Test
+        void whenLoadersWithDifferentFileSelectionsShareADirectory_thenEachLoadsOnlyItsFiles()
+                        throws IOException, InterruptedException, ExecutionException {
+                Path sharedDir = Files.createDirectories(tempDir.resolve("selection"));
+                Files.writeString(sharedDir.resolve("first"), "KEY=first\nFIRST=1", StandardCharsets.UTF_8);
+                Files.writeString(sharedDir.resolve("second"), "KEY=second\nSECOND=2", StandardCharsets.UTF_8);
+                EnvContextLoader firstLoader = new EnvContextLoader(sharedDir, Set.of("first"));
+                EnvContextLoader secondLoader = new EnvContextLoader(sharedDir, Set.of("second"));
+
+                List<Properties> results = runConcurrently(8, 200, i -> {
+                        EnvContextLoader loader = i % 2 == 0 ? firstLoader : secondLoader;
+                        loader.load();
+                        return loader.getLoadedProperties();
+                });
+
+                for (int i = 0; i < results.size(); i++) {
+                        String expected = i % 2 == 0 ? "first" : "second";
+                        assertThat(results.get(i)).hasSize(2).containsEntry("KEY", expected);
+                }
+        }
+
+        @Test
+        void whenLoadFails_thenThePreviouslyLoadedPropertiesAreKept() throws IOException {
+                Path dir = Files.createDirectories(tempDir.resolve("failing"));
+                Files.writeString(dir.resolve(".env"), "KEY=VALUE", StandardCharsets.UTF_8);
+                EnvContextLoader loader = new EnvContextLoader(dir);
+                loader.load();
+
+                Files.writeString(dir.resolve(".env"), "KEY=${KEY}", StandardCharsets.UTF_8);
+                Throwable thrown = catchThrowable(loader::load);
+
+                assertThat(thrown).isInstanceOf(EnvContextLoaderException.class);
+                assertThat(loader.getLoadedProperties()).hasSize(1).containsEntry("KEY", "VALUE");
+        }
+
+        @Test
+        void whenApplicationStartupIsSet_thenTheLoadStagesAreRecordedAsTaggedSteps() throws IOException {
+                String content = "KEY=VALUE\nREF=${KEY}-ref\nMISSING=${UNDEFINED}";
+                Files.writeString(tempDir.resolve(".env"), content, StandardCharsets.UTF_8);
+                BufferingApplicationStartup startup = new BufferingApplicationStartup(64);
+
+                envContextLoader.setApplicationStartup(startup);
+                envContextLoader.load();
+
+                Map<String, Map<String, String>> steps = new HashMap<>();
+                Map<String, Long> parentIds = new HashMap<>();
+                Map<Long, String> names = new HashMap<>();
+                for (StartupTimeline.TimelineEvent event : startup.getBufferedTimeline().getEvents()) {
+                        StartupStep step = event.getStartupStep();
+                        Map<String, String> tags = new HashMap<>();
+                        step.getTags().forEach(tag -> tags.put(tag.getKey(), tag.getValue()));
+                        steps.put(step.getName(), tags);
+                        parentIds.put(step.getName(), step.getParentId());
+                        names.put(step.getId(), step.getName());
+                }
+
+                assertThat(steps.get("springcontext.env.load")).containsEntry("files", "1").containsEntry("keys", "2");
+                assertThat(steps.get("springcontext.env.discover")).containsEntry("files", "[.env]");
+                assertThat(steps.get("springcontext.env.parse")).containsEntry("file", ".env")
+                                .containsEntry("keys", "3")
+                                .containsEntry("bytes", String.valueOf(content.getBytes(StandardCharsets.UTF_8).length));
+                assertThat(steps.get("springcontext.env.resolve")).containsEntry("file", ".env")
+                                .containsEntry("keys", "2")
+                                .containsEntry("unresolved", "1");
+                assertThat(names.get(parentIds.get("springcontext.env.discover"))).isEqualTo("springcontext.env.load");
+                assertThat(names.get(parentIds.get("springcontext.env.parse"))).isEqualTo("springcontext.env.load");
+                assertThat(names.get(parentIds.get("springcontext.env.resolve"))).isEqualTo("springcontext.env.parse");
+        }
+
+        @Test
+        void whenEnvFilesIncludeACommonFile_thenTheMergedVariablesAreResolved() throws IOException {
+                Files.writeString(tempDir.resolve("common.env"),
+                                "DB_NAME=app\nHOST=localhost\nURL=jdbc:postgresql://${HOST}/${DB_NAME}",
+                                StandardCharsets.UTF_8);
+                Files.writeString(tempDir.resolve(".env"), "#include <common.env>\nHOST=db", StandardCharsets.UTF_8);
+                Files.writeString(tempDir.resolve(".env-dev"), "#include \"common.env\"\nDEV=${DB_NAME}-dev",
+                                StandardCharsets.UTF_8);
+
+                envContextLoader.load();
+                Properties props = envContextLoader.getLoadedProperties();
+
+                assertThat(props).containsEntry("DB_NAME", "app")
+                                .containsEntry("DEV", "app-dev")
+                                .containsKey("URL")
+                                .doesNotContainKey("#include");
+                assertThat(envContextLoader.getLayeredProperties()
+                                .getLayerProperties(tempDir.resolve(".env").toString()).get("URL"))
+                                .isEqualTo("jdbc:postgresql://db/app");
+        }
+
+        @Test
+        void whenIncludesFormACycle_thenThrowEnvContextLoaderException() throws IOException {
+                Files.writeString(tempDir.resolve("a.env"), "#include <b.env>\nA=a", StandardCharsets.UTF_8);
+                Files.writeString(tempDir.resolve("b.env"), "#include <a.env>\nB=b", StandardCharsets.UTF_8);
+                Files.writeString(tempDir.resolve(".env"), "#include <a.env>", StandardCharsets.UTF_8);
+
+                Throwable thrown = catchThrowable(() -> envContextLoader.load());
+
+                assertThat(thrown).isInstanceOf(EnvContextLoaderException.class)
+                                .hasMessageContaining("Circular include detected on file")
+                                .hasMessageContaining("a.env");
+        }
+
+        @Test
+        void whenAnIncludedFileChangesOrIsMissing_thenTheNextLoadSeesIt() throws IOException {
+                Path common = tempDir.resolve("common.env");
+                Files.writeString(common, "KEY=first", StandardCharsets.UTF_8);
+                Files.writeString(tempDir.resolve(".env"), "#include <common.env>\nREF=${KEY}", StandardCharsets.UTF_8);
+                envContextLoader.load();
+                assertThat(envContextLoader.getLoadedProperties()).containsEntry("REF", "first");
+
+                Files.writeString(common, "KEY=changed", StandardCharsets.UTF_8);
+                envContextLoader.load();
+                assertThat(envContextLoader.getLoadedProperties()).containsEntry("REF", "changed");
+
+                Files.delete(common);
+                Throwable thrown = catchThrowable(() -> envContextLoader.load());
+                assertThat(thrown).isInstanceOf(EnvContextLoaderException.class)
+                                .hasMessageContaining("included by .env is not found");
+        }
+
+        @Test
+        void whenRequiredKeysAreSet_thenOnlyTheRequiredKeysAndTheirReferencesAreLoaded() throws IOException {
+                Files.writeString(tempDir.resolve("common.env"), "APP_HOST=localhost\nOTHER=${UNDEFINED_KEY}",
+                                StandardCharsets.UTF_8);
+                Files.writeString(tempDir.resolve(".env"),
+                                "#include <common.env>\nAPP_URL=http://${APP_HOST}:${APP_PORT}\nAPP_PORT=8080\n"
+                                                + "UNUSED=value\n1INVALID=value",
+                                StandardCharsets.UTF_8);
+                envContextLoader.setRequiredKeys("APP_URL"::equals);
+
+                envContextLoader.load();
+
+                assertThat(envContextLoader.getLoadedProperties())
+                                .containsOnlyKeys("APP_URL", "APP_HOST", "APP_PORT")
+                                .containsEntry("APP_URL", "http://localhost:8080");
+                assertThat(envContextLoader.getUnusedKeys()).containsExactly("1INVALID", "OTHER", "UNUSED");
+                // The unused keys are not resolved, so their issues are not reported
+                assertThat(envContextLoader.getDiagnostics().count(EnvLoadIssue.Kind.INVALID_NAME)).isZero();
+                assertThat(envContextLoader.getDiagnostics().count(EnvLoadIssue.Kind.UNDEFINED_VARIABLE)).isZero();
+
+                envContextLoader.setRequiredKeys(null);
+                envContextLoader.load();
+                assertThat(envContextLoader.getLoadedProperties()).containsKeys("APP_URL", "UNUSED");
+                assertThat(envContextLoader.getUnusedKeys()).isEmpty();
+        }
+
+        private static <T> List<T> runConcurrently(int threads, int tasks, IntFunction<T> task)
+                        throws InterruptedException, ExecutionException {
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                CountDownLatch start = new CountDownLatch(1);
+                try {
+                        List<Future<T>> futures = new ArrayList<>();
+                        for (int i = 0; i < tasks; i++) {
+                                int index = i;
+                                futures.add(executor.submit(() -> {
+                                        start.await();
+                                        return task.apply(index);
+                                }));
+                        }
+                        start.countDown();
+                        List<T> results = new ArrayList<>();
+                        for (Future<T> future : futures) {
+                                results.add(future.get());
+                        }
+                        return results;
+                } finally {
+                        executor.shutdownNow();
+                }
+        }
+}
@@ -0,0 +1,286 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.core.metrics.StartupStep;
+
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+
+/**
+ * Generated worst-case inputs for the variable resolution of
+ * {@link EnvContextLoader}. Every case must finish within a generous time
+ * bound, without exhausting the stack or the heap, and the resolution steps
+ * the loader records must grow linearly with the input.
+ */
+class EnvContextLoaderWorstCaseTest {
+    private static final Duration TIME_BOUND = Duration.ofSeconds(10);
+    private static final String ENV_FILE_NAME = ".env";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void whenReferenceChainIsVeryDeep_thenEveryKeyResolvesInLinearTime() throws IOException {
+        int depth = 10_000;
+        Path envDir = writeEnvFile("chain", referenceChain(depth));
+
+        Properties props = assertTimeoutPreemptively(TIME_BOUND, () -> load(envDir));
+
+        assertThat(props).hasSize(depth + 1);
+        assertThat(props.getProperty("KEY0")).isEqualTo("end");
+        assertThat(props.getProperty("KEY" + (depth / 2))).isEqualTo("end");
+        assertNearLinear(EnvContextLoaderWorstCaseTest::referenceChain);
+    }
+
+    @Test
+    void whenOneKeyReferencesThousandsOfKeys_thenItResolvesInLinearTime() throws IOException {
+        int width = 20_000;
+        Path envDir = writeEnvFile("fan-out", fanOut(width));
+
+        Properties props = assertTimeoutPreemptively(TIME_BOUND, () -> load(envDir));
+
+        assertThat(props).hasSize(width + 1);
+        assertThat(props.getProperty("ROOT")).hasSize(width).matches("v+");
+        assertNearLinear(EnvContextLoaderWorstCaseTest::fanOut);
+    }
+
+    @Test
+    void whenValueRepeatsTheSameReferenceManyTimes_thenTheReferenceIsResolvedOnce() throws IOException {
+        int repeats = 100_000;
+        StringBuilder content = new StringBuilder();
+        content.append("SHARED=${LEAF}\nLEAF=x\nVALUE=");
+        content.append("${SHARED}".repeat(repeats)).append('\n');
+        Path envDir = writeEnvFile("repeats", content.toString());
+
+        Properties props = assertTimeoutPreemptively(TIME_BOUND, () -> load(envDir));
+
+        assertThat(props.getProperty("VALUE")).hasSize(repeats);
+    }
+
+    @Test
+    void whenValueHasManyUnclosedReferences_thenMatchingDoesNotBacktrack() throws IOException {
+        String content = "KEY=x" + "${".repeat(100_000) + "\nOTHER=y${KEY" + "${".repeat(100_000) + "\n";
+        Path envDir = writeEnvFile("unclosed", content);
+
+        Properties props = assertTimeoutPreemptively(TIME_BOUND, () -> load(envDir));
+
+        assertThat(props.getProperty("KEY")).hasSize(200_001);
+        assertThat(props.getProperty("OTHER")).startsWith("y${KEY");
+    }
+
+    @Test
+    void whenManyKeysReferenceAnUndefinedVariableThroughAChain_thenTheFailureIsNotRecomputed()
+            throws IOException {
+        int depth = 10_000;
+        String content = referenceChain(depth).replace("=end", "=${UNDEFINED}");
+        Path envDir = writeEnvFile("undefined", content);
+
+        Properties props = assertTimeoutPreemptively(TIME_BOUND, () -> load(envDir));
+
+        assertThat(props).isEmpty();
+    }
+
+    @Test
+    void whenSiblingReferenceIsUndefined_thenTheOtherSiblingsStillResolve() throws IOException {
+        String content = "PARENT=${CHILD}${MISSING}\nCHILD=${LEAF}\nLEAF=leaf\nOTHER=${CHILD}-other\n";
+        Path envDir = writeEnvFile("siblings", content);
+
+        Properties props = load(envDir);
+
+        assertThat(props).doesNotContainKey("PARENT")
+                .containsEntry("CHILD", "leaf")
+                .containsEntry("OTHER", "leaf-other");
+    }
+
+    @Test
+    void whenLargeGraphIsNearlyCyclic_thenItResolvesOrFailsInNearLinearTime() throws IOException {
+        int size = 20_000;
+        Random random = new Random(2024);
+        StringBuilder acyclic = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            // Every key references up to three keys of higher index, which keeps the graph acyclic
+            acyclic.append("KEY").append(i).append("=v");
+            for (int edge = 0; edge < 3 && i + 1 < size; edge++) {
+                acyclic.append("${KEY").append(i + 1 + random.nextInt(Math.min(8, size - i - 1))).append('}');
+            }
+            acyclic.append('\n');
+        }
+        String acyclicContent = acyclic.toString().replace("KEY" + (size - 1) + "=v", "KEY" + (size - 1) + "=end");
+        Path acyclicDir = writeEnvFile("acyclic", acyclicContent);
+        // Closing the graph from the last key back to the first one makes every key part of a cycle
+        Path cyclicDir = writeEnvFile("cyclic",
+                acyclicContent.replace("KEY" + (size - 1) + "=end", "KEY" + (size - 1) + "=${KEY0}"));
+
+        EnvContextLoaderException exception = assertTimeoutPreemptively(TIME_BOUND,
+                () -> (EnvContextLoaderException) catchThrowable(() -> load(cyclicDir)));
+        assertThat(exception).isNotNull().hasMessageContaining("Circular dependency detected");
+
+        // The resolved values of the acyclic graph grow exponentially, so they are capped
+        EnvContextLoaderException tooLong = assertTimeoutPreemptively(TIME_BOUND,
+                () -> (EnvContextLoaderException) catchThrowable(() -> load(acyclicDir)));
+        assertThat(tooLong).isNotNull().hasMessageContaining("expand by more than");
+    }
+
+    @Test
+    void whenReferencesExpandExponentially_thenTheLoadFailsBeforeExhaustingTheHeap() throws IOException {
+        StringBuilder content = new StringBuilder("LEVEL0=0123456789abcdef\n");
+        for (int level = 1; level <= 64; level++) {
+            content.append("LEVEL").append(level).append("=${LEVEL").append(level - 1).append("}${LEVEL")
+                    .append(level - 1).append("}\n");
+        }
+        Path envDir = writeEnvFile("expansion", content.toString());
+
+        Throwable thrown = assertTimeoutPreemptively(TIME_BOUND, () -> catchThrowable(() -> load(envDir)));
+
+        assertThat(thrown).isInstanceOf(EnvContextLoaderException.class)
+                .hasMessageContaining("LEVEL")
+                .hasMessageContaining("expand by more than");
+    }
+
+    @Test
+    void whenManyKeysReferenceALargeExpansion_thenTheLoadFailsBeforeExhaustingTheHeap() throws IOException {
+        // LEVEL15 expands to 512 KiB, under the limit of a single value
+        Path envDir = writeEnvFile("fan-out-expansion", largeExpansion(15) + copies("LEVEL15", 1_000));
+
+        Throwable thrown = assertTimeoutPreemptively(TIME_BOUND, () -> catchThrowable(() -> load(envDir)));
+
+        assertThat(thrown).isInstanceOf(EnvContextLoaderException.class)
+                .hasMessageContaining("expand by more than")
+                .hasMessageContaining("in total");
+    }
+
+    @Test
+    void whenAFewKeysReferenceALargeExpansion_thenTheyAreLoaded() throws IOException {
+        Path envDir = writeEnvFile("few-copies", largeExpansion(15) + copies("LEVEL15", 8));
+
+        Properties props = assertTimeoutPreemptively(TIME_BOUND, () -> load(envDir));
+
+        assertThat(props.getProperty("COPY7")).hasSize(16 << 15);
+    }
+
+    @Test
+    void whenALiteralValueIsLargerThanTheExpansionLimit_thenItIsLoaded() throws IOException {
+        String literal = "x".repeat(3 << 20);
+        Path envDir = writeEnvFile("literal", "LARGE=" + literal + "\nREF=${SMALL}-ref\nSMALL=small\n");
+
+        Properties props = assertTimeoutPreemptively(TIME_BOUND, () -> load(envDir));
+
+        assertThat(props.getProperty("LARGE")).isEqualTo(literal);
+        assertThat(props.getProperty("REF")).isEqualTo("small-ref");
+    }
+
+    /**
+     * Asserts that growing the input sixteen times grows the resolution steps
+     * recorded by the loader about sixteen times, not the 256 times a quadratic
+     * resolution would.
+     */
+    private void assertNearLinear(IntFunction<String> generator) throws IOException {
+        int size = 2_000;
+        int factor = 16;
+        long smallSteps = resolutionSteps(writeEnvFile("small", generator.apply(size)));
+        long largeSteps = resolutionSteps(writeEnvFile("large", generator.apply(size * factor)));
+
+        assertThat(smallSteps).isPositive();
+        assertThat(largeSteps).isLessThanOrEqualTo(smallSteps * factor * 2);
+    }
+
+    /**
+     * Loads the environment file of a directory and returns the resolution
+     * steps recorded by its <code>springcontext.env.resolve</code> step.
+     */
+    private static long resolutionSteps(Path envDir) {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(16);
+        EnvContextLoader loader = new EnvContextLoader(envDir, Set.of(ENV_FILE_NAME));
+        loader.setApplicationStartup(startup);
+        loader.load();
+        for (StartupTimeline.TimelineEvent event : startup.getBufferedTimeline().getEvents()) {
+            if ("springcontext.env.resolve".equals(event.getStartupStep().getName())) {
+                for (StartupStep.Tag tag : event.getStartupStep().getTags()) {
+                    if ("steps".equals(tag.getKey())) {
+                        return Long.parseLong(tag.getValue());
+                    }
+                }
+            }
+        }
+        throw new AssertionError("No resolution steps were recorded");
+    }
+
+    /**
+     * KEY0 references KEY1, which references KEY2 and so on, down to
+     * KEY{depth} which is defined.
+     */
+    private static String referenceChain(int depth) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            content.append("KEY").append(i).append("=${KEY").append(i + 1).append("}\n");
+        }
+        return content.append("KEY").append(depth).append("=end\n").toString();
+    }
+
+    /**
+     * ROOT references every one of {@code width} defined keys.
+     */
+    private static String fanOut(int width) {
+        StringBuilder content = new StringBuilder("ROOT=");
+        for (int i = 0; i < width; i++) {
+            content.append("${LEAF").append(i).append('}');
+        }
+        content.append('\n');
+        for (int i = 0; i < width; i++) {
+            content.append("LEAF").append(i).append("=v\n");
+        }
+        return content.toString();
+    }
+
+    /**
+     * LEVEL0 is sixteen characters long and every following level references
+     * the previous one twice, up to LEVEL{levels}.
+     */
+    private static String largeExpansion(int levels) {
+        StringBuilder content = new StringBuilder("LEVEL0=0123456789abcdef\n");
+        for (int level = 1; level <= levels; level++) {
+            content.append("LEVEL").append(level).append("=${LEVEL").append(level - 1).append("}${LEVEL")
+                    .append(level - 1).append("}\n");
+        }
+        return content.toString();
+    }
+
+    /**
+     * COPY0 to COPY{count - 1} each reference the same key.
+     */
+    private static String copies(String key, int count) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            content.append("COPY").append(i).append("=${").append(key).append("}\n");
+        }
+        return content.toString();
+    }
+
+    private Path writeEnvFile(String directory, String content) throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve(directory));
+        Files.writeString(envDir.resolve(ENV_FILE_NAME), content, StandardCharsets.UTF_8);
+        return envDir;
+    }
+
+    private static Properties load(Path envDir) {
+        EnvContextLoader loader = new EnvContextLoader(envDir, Set.of(ENV_FILE_NAME));
+        loader.load();
+        return loader.getLoadedProperties();
+    }
+}
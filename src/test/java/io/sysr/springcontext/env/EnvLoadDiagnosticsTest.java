@@ -0,0 +1,107 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import io.sysr.springcontext.env.configuration.SpringContextEnvApplicationContextInitializer;
+import io.sysr.springcontext.env.diagnostics.EnvLoadDiagnostics;
+import io.sysr.springcontext.env.diagnostics.EnvLoadIssue;
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+
+class EnvLoadDiagnosticsTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void whenVariablesAreSkipped_thenTheIssuesAreCollectedInStructuredForm() throws IOException {
+        StringBuilder content = new StringBuilder("VALID=value\n1INVALID=value\nBAD=${\n");
+        for (int i = 0; i < 20; i++) {
+            content.append("KEY_").append(i).append("=${UNDEFINED_").append(i).append("}\n");
+        }
+        Files.writeString(tempDir.resolve(".env"), content, StandardCharsets.UTF_8);
+        EnvContextLoader loader = new EnvContextLoader(tempDir);
+
+        loader.load();
+        EnvLoadDiagnostics diagnostics = loader.getDiagnostics();
+
+        assertThat(loader.getLoadedProperties()).containsOnlyKeys("VALID");
+        assertThat(diagnostics.count()).isEqualTo(22);
+        assertThat(diagnostics.count(EnvLoadIssue.Kind.UNDEFINED_VARIABLE)).isEqualTo(20);
+        assertThat(diagnostics.getIssues(EnvLoadIssue.Kind.INVALID_NAME))
+                .containsExactly(new EnvLoadIssue(EnvLoadIssue.Kind.INVALID_NAME, ".env", "1INVALID"));
+        assertThat(diagnostics.getIssues(EnvLoadIssue.Kind.INVALID_DEFINITION))
+                .containsExactly(new EnvLoadIssue(EnvLoadIssue.Kind.INVALID_DEFINITION, ".env", "BAD"));
+        assertThat(diagnostics.summary(3))
+                .contains("UNDEFINED_VARIABLE=20 [")
+                .contains("(.env), ...]")
+                .contains("INVALID_NAME=1 [1INVALID (.env)]")
+                .doesNotContain("${");
+        assertThatThrownBy(diagnostics::requireNoIssues)
+                .isInstanceOf(EnvContextLoaderException.class)
+                .hasMessageStartingWith("22 issues found while loading the env files");
+
+        Files.writeString(tempDir.resolve(".env"), "VALID=value", StandardCharsets.UTF_8);
+        loader.load();
+        assertThat(loader.getDiagnostics().hasIssues()).isFalse();
+        loader.getDiagnostics().requireNoIssues();
+    }
+
+    @Test
+    void whenDotenvPropertiesIsNotInTheClasspath_thenItIsReportedAsAnIssue() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("no-dotenv-properties"));
+        Files.writeString(envDir.resolve(".env"), "VALID=value", StandardCharsets.UTF_8);
+        String userDir = System.getProperty("user.dir");
+        System.setProperty("user.dir", envDir.toAbsolutePath().toString());
+        try {
+            EnvContextLoader loader = new EnvContextLoader();
+            loader.load();
+
+            assertThat(loader.getProperty("VALID")).isEqualTo("value");
+            assertThat(loader.getDiagnostics().getIssues(EnvLoadIssue.Kind.MISSING_PROPERTIES_FILE))
+                    .containsExactly(new EnvLoadIssue(EnvLoadIssue.Kind.MISSING_PROPERTIES_FILE,
+                            "dotenv.properties", null));
+        } finally {
+            System.setProperty("user.dir", userDir);
+        }
+    }
+
+    @Test
+    void whenMoreIssuesThanTheLimitAreFound_thenAllAreCountedAndTheFirstAreKept() {
+        EnvLoadDiagnostics.Collector collector = new EnvLoadDiagnostics.Collector();
+        for (int i = 0; i <= EnvLoadDiagnostics.MAX_RECORDED_ISSUES; i++) {
+            collector.record(EnvLoadIssue.Kind.UNDEFINED_VARIABLE, ".env", "KEY_" + i);
+        }
+        collector.record(EnvLoadIssue.Kind.MISSING_DIRECTORY, "/missing", null);
+
+        EnvLoadDiagnostics diagnostics = collector.build();
+
+        assertThat(diagnostics.count()).isEqualTo(EnvLoadDiagnostics.MAX_RECORDED_ISSUES + 2);
+        assertThat(diagnostics.getIssues()).hasSize(EnvLoadDiagnostics.MAX_RECORDED_ISSUES);
+        assertThat(diagnostics.count(EnvLoadIssue.Kind.MISSING_DIRECTORY)).isEqualTo(1);
+        assertThat(diagnostics.summary(1)).endsWith("MISSING_DIRECTORY=1 [...]");
+    }
+
+    @Test
+    void whenFailOnIssuesIsEnabled_thenTheInitializerFailsOnAnyIssue() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("springcontext-env"));
+        Files.writeString(envDir.resolve(".env"), "KEY=${UNDEFINED_DIAGNOSTICS_KEY}", StandardCharsets.UTF_8);
+        System.setProperty("user.dir", envDir.toAbsolutePath().toString());
+        System.setProperty(SpringContextEnvApplicationContextInitializer.FAIL_ON_ISSUES_PROPERTY, "true");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            assertThatThrownBy(() -> new SpringContextEnvApplicationContextInitializer().initialize(context))
+                    .isInstanceOf(EnvContextLoaderException.class)
+                    .hasMessageContaining("UNDEFINED_DIAGNOSTICS_KEY (.env)");
+        } finally {
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.FAIL_ON_ISSUES_PROPERTY);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.exception.EnvContextLoaderException;
+import io.sysr.springcontext.env.file.FileValueCache;
+
+class FileValueCacheTest {
+    private static final String CERTIFICATE = "-----BEGIN CERTIFICATE-----\nMIIB\n-----END CERTIFICATE-----";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void whenAValueReferencesAFile_thenTheFileIsReadOnFirstLookup() throws IOException {
+        Path certificate = tempDir.resolve("tls.crt");
+        Files.writeString(certificate, CERTIFICATE + "\n", StandardCharsets.UTF_8);
+        String reference = "${file:" + certificate + "}";
+        Files.writeString(tempDir.resolve(".env"), "TLS_CERT=" + reference + "\nBUNDLE=bundle:${TLS_CERT}",
+                StandardCharsets.UTF_8);
+
+        EnvContextLoader loader = new EnvContextLoader(tempDir);
+        loader.load();
+        assertThat(loader.getProperty("TLS_CERT")).isEqualTo(reference);
+
+        DotEnvPropertySource propertySource = new DotEnvPropertySource(loader.getLoadedProperties());
+        assertThat(FileValueCache.getSharedInstance().isCached(certificate)).isFalse();
+
+        assertThat(propertySource.getProperty("TLS_CERT")).isEqualTo(CERTIFICATE);
+        assertThat(FileValueCache.getSharedInstance().isCached(certificate)).isTrue();
+        assertThat(propertySource.getProperty("tls.cert")).isEqualTo(CERTIFICATE);
+        assertThat(propertySource.getProperty("BUNDLE")).isEqualTo("bundle:" + CERTIFICATE);
+
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(propertySource);
+        assertThat(environment.getProperty("tls-cert")).isEqualTo(CERTIFICATE);
+    }
+
+    @Test
+    void whenTheMemoryBudgetIsExceeded_thenTheLeastRecentlyUsedContentIsEvicted() throws IOException {
+        // Large enough to be read through a memory mapping
+        String large = "x".repeat(100 * 1024);
+        Path first = Files.writeString(tempDir.resolve("first.pem"), large, StandardCharsets.UTF_8);
+        Path second = Files.writeString(tempDir.resolve("second.pem"), large, StandardCharsets.UTF_8);
+        Path third = Files.writeString(tempDir.resolve("third.pem"), "small", StandardCharsets.UTF_8);
+        FileValueCache cache = new FileValueCache(2L * 2 * large.length() + 5);
+
+        assertThat(cache.read(first)).isEqualTo(large);
+        assertThat(cache.read(second)).isEqualTo(large);
+        cache.read(first);
+        assertThat(cache.read(third)).isEqualTo("small");
+
+        assertThat(cache.isCached(first)).isTrue();
+        assertThat(cache.isCached(second)).isFalse();
+        assertThat(cache.isCached(third)).isTrue();
+        assertThat(cache.getCachedBytes()).isEqualTo(2L * (large.length() + "small".length()));
+        assertThat(cache.expand("a=${file:" + second + "};b=${file:" + third + "}"))
+                .isEqualTo("a=" + large + ";b=small");
+    }
+
+    @Test
+    void whenAReferenceIsRelative_thenItIsResolvedAgainstTheDeclaringFile() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("env"));
+        Path secrets = Files.createDirectories(envDir.resolve("secrets"));
+        Files.writeString(secrets.resolve("api.key"), "relative-key\n", StandardCharsets.UTF_8);
+        Files.writeString(envDir.resolve(".env"), "API_KEY=${file:secrets/api.key}", StandardCharsets.UTF_8);
+
+        EnvContextLoader loader = new EnvContextLoader(envDir);
+        loader.load();
+
+        assertThat(loader.getProperty("API_KEY")).isEqualTo("${file:" + secrets.resolve("api.key") + "}");
+        assertThat(new DotEnvPropertySource(loader.getLoadedProperties()).getProperty("API_KEY"))
+                .isEqualTo("relative-key");
+    }
+
+    @Test
+    void whenAValueGivenDirectlyHoldsARelativeReference_thenTheLookupFails() {
+        Properties properties = new Properties();
+        properties.setProperty("API_KEY", "${file:secrets/api.key}");
+        DotEnvPropertySource propertySource = new DotEnvPropertySource(properties);
+
+        assertThatThrownBy(() -> propertySource.getProperty("API_KEY"))
+                .isInstanceOf(EnvContextLoaderException.class)
+                .hasMessageContaining("relative");
+    }
+
+    @Test
+    void whenALargeFileHoldsMultiByteCharacters_thenItIsDecodedAcrossChunks() throws IOException {
+        // Two bytes per character, so that characters straddle the decoded chunks
+        String large = "é".repeat(100 * 1024 + 1);
+        Path file = Files.writeString(tempDir.resolve("large.txt"), large + " \n\t", StandardCharsets.UTF_8);
+        Path small = Files.writeString(tempDir.resolve("small.txt"), "ünïcode\n", StandardCharsets.UTF_8);
+        FileValueCache cache = new FileValueCache(FileValueCache.DEFAULT_MEMORY_BUDGET_BYTES);
+
+        assertThat(cache.read(file)).isEqualTo(large);
+        assertThat(cache.read(small)).isEqualTo("ünïcode");
+    }
+
+    @Test
+    void whenAReferencedFileIsMissing_thenTheLookupFails() {
+        Properties properties = new Properties();
+        properties.setProperty("API_KEY", "${file:" + tempDir.resolve("missing.key") + "}");
+        DotEnvPropertySource propertySource = new DotEnvPropertySource(properties);
+
+        assertThat(propertySource.containsProperty("API_KEY")).isTrue();
+        assertThatThrownBy(() -> propertySource.getProperty("API_KEY"))
+                .isInstanceOf(EnvContextLoaderException.class)
+                .hasMessageContaining("missing.key");
+    }
+}
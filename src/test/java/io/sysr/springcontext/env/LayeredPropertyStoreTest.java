@@ -0,0 +1,158 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.sysr.springcontext.env.store.LayeredPropertyStore;
+import io.sysr.springcontext.env.store.PersistentHashMap;
+
+class LayeredPropertyStoreTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void whenPersistentMapIsUpdatedRandomly_thenItMatchesAHashMapAndOldVersionsAreUnchanged() {
+        Random random = new Random(2024);
+        Map<String, String> expected = new HashMap<>();
+        PersistentHashMap<String, String> map = PersistentHashMap.empty();
+        for (int i = 0; i < 50_000; i++) {
+            String key = "KEY" + random.nextInt(5_000);
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                String value = "VALUE" + i;
+                expected.put(key, value);
+                map = map.plus(key, value);
+            }
+        }
+
+        PersistentHashMap<String, String> result = map;
+        assertThat(result.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(result.get(key)).isEqualTo(value));
+        assertThat(result.entries()).containsExactlyInAnyOrderElementsOf(expected.entrySet());
+
+        PersistentHashMap<String, String> updated = result.plus("NEW", "value")
+                .minus(expected.keySet().iterator().next());
+        assertThat(result.size()).isEqualTo(expected.size());
+        assertThat(result.get("NEW")).isNull();
+        assertThat(updated.size()).isEqualTo(expected.size());
+    }
+
+    @Test
+    void whenKeysHaveCollidingHashCodes_thenTheyAreAllKept() {
+        // "Aa" and "BB" share the same String hash code
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty()
+                .plus("Aa", "1").plus("BB", "2").plus("AaAa", "3").plus("BBBB", "4").plus("AaBB", "5");
+
+        assertThat(map.size()).isEqualTo(5);
+        assertThat(map.get("Aa")).isEqualTo("1");
+        assertThat(map.get("BB")).isEqualTo("2");
+        assertThat(map.get("AaBB")).isEqualTo("5");
+
+        PersistentHashMap<String, String> removed = map.minus("Aa").minus("AaBB");
+        assertThat(removed.size()).isEqualTo(3);
+        assertThat(removed.get("Aa")).isNull();
+        assertThat(removed.get("BB")).isEqualTo("2");
+        assertThat(removed.get("BBBB")).isEqualTo("4");
+    }
+
+    @Test
+    void whenLayersOverlap_thenTheTopMostLayerWinsAndIsRecorded() {
+        LayeredPropertyStore store = LayeredPropertyStore.empty()
+                .withLayer(".env", Map.of("HOST", "localhost", "PORT", "8080"))
+                .withLayer(".env-prod", Map.of("HOST", "sysr.io"));
+
+        assertThat(store.get("HOST")).isEqualTo("sysr.io");
+        assertThat(store.get("PORT")).isEqualTo("8080");
+        assertThat(store.getLayer("HOST")).contains(".env-prod");
+        assertThat(store.getLayer("PORT")).contains(".env");
+        assertThat(store.getLayerNames()).containsExactly(".env", ".env-prod");
+        assertThat(store.asMap()).containsExactlyInAnyOrderEntriesOf(Map.of("HOST", "sysr.io", "PORT", "8080"));
+    }
+
+    @Test
+    void whenOverridesAreAddedAndRemoved_thenPreviousVersionsAreUnchanged() {
+        LayeredPropertyStore base = LayeredPropertyStore.empty()
+                .withLayer(".env", Map.of("HOST", "localhost", "PORT", "8080"));
+
+        LayeredPropertyStore overridden = base.withOverride("PORT", "9090").withOverride("DEBUG", "true");
+        LayeredPropertyStore reloaded = overridden.withLayer(".env-prod", Map.of("PORT", "80", "HOST", "sysr.io"));
+        LayeredPropertyStore restored = reloaded.withoutOverride("PORT");
+
+        assertThat(base.get("PORT")).isEqualTo("8080");
+        assertThat(base.get("DEBUG")).isNull();
+        assertThat(overridden.get("PORT")).isEqualTo("9090");
+        assertThat(overridden.getLayer("PORT")).contains(LayeredPropertyStore.OVERRIDES_LAYER);
+        assertThat(reloaded.get("PORT")).isEqualTo("9090");
+        assertThat(reloaded.get("HOST")).isEqualTo("sysr.io");
+        assertThat(reloaded.getLayerNames())
+                .containsExactly(".env", ".env-prod", LayeredPropertyStore.OVERRIDES_LAYER);
+        assertThat(restored.get("PORT")).isEqualTo("80");
+        assertThat(restored.get("DEBUG")).isEqualTo("true");
+        assertThat(restored.withoutOverride("DEBUG").getLayerNames()).containsExactly(".env", ".env-prod");
+    }
+
+    @Test
+    void whenALayerIsReplacedOrRemoved_thenLowerLayersShowThrough() {
+        LayeredPropertyStore store = LayeredPropertyStore.empty()
+                .withLayer(".env", Map.of("KEY", "base", "ONLY_BASE", "1"))
+                .withLayer(".env-dev", Map.of("KEY", "dev", "ONLY_DEV", "2"));
+
+        LayeredPropertyStore replaced = store.withLayer(".env-dev", Map.of("OTHER", "3"));
+        LayeredPropertyStore removed = store.withoutLayer(".env-dev");
+
+        assertThat(replaced.get("KEY")).isEqualTo("base");
+        assertThat(replaced.get("ONLY_DEV")).isNull();
+        assertThat(replaced.get("OTHER")).isEqualTo("3");
+        assertThat(removed.size()).isEqualTo(2);
+        assertThat(removed.get("KEY")).isEqualTo("base");
+        assertThat(store.get("KEY")).isEqualTo("dev");
+    }
+
+    @Test
+    void whenALayerIsLoadedAgain_thenItMovesOnTopOfTheFileLayers() {
+        LayeredPropertyStore store = LayeredPropertyStore.empty()
+                .withLayer("a/.env", Map.of("KEY", "a"))
+                .withLayer("b/.env", Map.of("KEY", "b"))
+                .withOverride("PORT", "9090");
+
+        LayeredPropertyStore reloaded = store.withTopLayer("a/.env",
+                PersistentHashMap.<String, String>empty().plus("KEY", "a"));
+
+        assertThat(reloaded.get("KEY")).isEqualTo("a");
+        assertThat(reloaded.getLayer("KEY")).contains("a/.env");
+        assertThat(reloaded.getLayerNames()).containsExactly("b/.env", "a/.env", LayeredPropertyStore.OVERRIDES_LAYER);
+        assertThat(store.get("KEY")).isEqualTo("b");
+    }
+
+    @Test
+    void whenEnvFilesAreLoaded_thenEachFileIsALayer() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("env"));
+        Files.writeString(envDir.resolve("first"), "KEY=first\nHOST=localhost", StandardCharsets.UTF_8);
+        Files.writeString(envDir.resolve("second"), "KEY=second", StandardCharsets.UTF_8);
+        EnvContextLoader loader = new EnvContextLoader(envDir, Set.of("first", "second"));
+
+        loader.load();
+        LayeredPropertyStore store = loader.getLayeredProperties();
+
+        assertThat(store.getLayerNames()).hasSize(2);
+        assertThat(store.getLayerProperties(envDir.resolve("first").toString()).get("KEY")).isEqualTo("first");
+        assertThat(store.getLayerProperties(envDir.resolve("second").toString()).get("KEY")).isEqualTo("second");
+        assertThat(store.getLayer("HOST")).contains(envDir.resolve("first").toString());
+        assertThat(store.get("KEY")).isEqualTo(loader.getProperty("KEY"));
+        assertThat(store.withOverride("KEY", "override").get("KEY")).isEqualTo("override");
+        assertThat(loader.getProperty("KEY")).isEqualTo(store.get("KEY"));
+    }
+}
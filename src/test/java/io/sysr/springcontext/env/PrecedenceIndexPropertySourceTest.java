@@ -0,0 +1,139 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.EnumerablePropertySource;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.PropertySourcesPropertyResolver;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.env.SystemEnvironmentPropertySource;
+
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.configuration.PrecedenceIndexPropertySource;
+import io.sysr.springcontext.env.configuration.SpringContextEnvApplicationContextInitializer;
+
+class PrecedenceIndexPropertySourceTest {
+    private MutablePropertySources propertySources;
+    private Map<String, Object> applicationConfig;
+    private PrecedenceIndexPropertySource index;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        Properties dotenv = new Properties();
+        dotenv.setProperty("DATABASE_URL", "jdbc:dotenv");
+        dotenv.setProperty("SERVER_PORT", "8080");
+        dotenv.setProperty("ONLY_DOTENV", "dotenv");
+
+        applicationConfig = new HashMap<>(Map.of("server.port", "9090", "app.name", "config"));
+        propertySources = new MutablePropertySources();
+        propertySources.addLast(new MapPropertySource("commandLine", Map.of("app.name", "command-line")));
+        propertySources.addLast(new SystemEnvironmentPropertySource("environment", Map.of("DATABASE_URL", "jdbc:env")));
+        propertySources.addLast(new MapPropertySource("applicationConfig", applicationConfig));
+        propertySources.addLast(new DotEnvPropertySource(dotenv));
+        index = new PrecedenceIndexPropertySource(propertySources);
+    }
+
+    @Test
+    void whenNamesAreLookedUp_thenSpringPrecedenceIsKept() {
+        PropertySourcesPropertyResolver walk = new PropertySourcesPropertyResolver(propertySources);
+
+        for (String name : List.of("app.name", "database.url", "DATABASE_URL", "server.port", "SERVER_PORT",
+                "server-port", "ONLY_DOTENV", "only.dotenv", "missing")) {
+            assertThat(index.getProperty(name)).as(name).isEqualTo(walk.getProperty(name));
+            // A second lookup is answered from the remembered winner
+            assertThat(index.getProperty(name)).as(name).isEqualTo(walk.getProperty(name));
+        }
+        assertThat(index.getProperty("database.url")).isEqualTo("jdbc:env");
+        assertThat(index.getProperty("only.dotenv")).isEqualTo("dotenv");
+        assertThat(index.containsProperty("missing")).isFalse();
+        assertThat(index).isNotInstanceOf(EnumerablePropertySource.class);
+    }
+
+    @Test
+    void whenPropertySourcesChange_thenTheIndexIsRebuiltOnTheNextLookup() {
+        assertThat(index.getProperty("ONLY_DOTENV")).isEqualTo("dotenv");
+
+        propertySources.addFirst(new MapPropertySource("override", Map.of("ONLY_DOTENV", "override")));
+        assertThat(index.getProperty("ONLY_DOTENV")).isEqualTo("override");
+
+        propertySources.replace("override", new MapPropertySource("override", Map.of("ONLY_DOTENV", "replaced")));
+        assertThat(index.getProperty("ONLY_DOTENV")).isEqualTo("replaced");
+
+        propertySources.remove("override");
+        assertThat(index.getProperty("ONLY_DOTENV")).isEqualTo("dotenv");
+
+        // Changed names of an existing source need an explicit refresh
+        applicationConfig.put("ONLY_DOTENV", "config");
+        index.refresh();
+        assertThat(index.getProperty("ONLY_DOTENV")).isEqualTo("config");
+    }
+
+    @Test
+    void whenSystemPropertiesChangeAfterTheIndexIsBuilt_thenTheyStillTakePrecedence() {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addLast(new MapPropertySource("applicationConfig",
+                Map.of("precedence.index.test", "config")));
+        PrecedenceIndexPropertySource.install(environment);
+        assertThat(environment.getProperty("precedence.index.test")).isEqualTo("config");
+
+        System.setProperty("precedence.index.test", "system");
+        try {
+            assertThat(environment.getProperty("precedence.index.test")).isEqualTo("system");
+        } finally {
+            System.clearProperty("precedence.index.test");
+        }
+        assertThat(environment.getProperty("precedence.index.test")).isEqualTo("config");
+        assertThat(PrecedenceIndexPropertySource.install(environment))
+                .isSameAs(environment.getPropertySources().get(
+                        PrecedenceIndexPropertySource.PRECEDENCE_INDEX_PROPERTY_SOURCE_NAME));
+    }
+
+    @Test
+    void whenPrecedenceIndexIsEnabled_thenTheInitializerRegistersItFirst() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("springcontext-env"));
+        Files.writeString(envDir.resolve(".env"), "KEY1=VALUE1", StandardCharsets.UTF_8);
+        System.setProperty("user.dir", envDir.toAbsolutePath().toString());
+        System.setProperty(SpringContextEnvApplicationContextInitializer.PRECEDENCE_INDEX_ENABLED_PROPERTY, "true");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            new SpringContextEnvApplicationContextInitializer().initialize(context);
+
+            PropertySource<?> first = context.getEnvironment().getPropertySources().iterator().next();
+            assertThat(first).isInstanceOf(PrecedenceIndexPropertySource.class);
+            assertThat(first.getProperty("key1")).isEqualTo("VALUE1");
+            assertThat(context.getEnvironment().getProperty("KEY1")).isEqualTo("VALUE1");
+
+            // Property sources added after the context is initialized take precedence right away
+            context.getEnvironment().getPropertySources()
+                    .addFirst(new MapPropertySource("initialized", Map.of("KEY1", "initialized")));
+            assertThat(context.getEnvironment().getProperty("KEY1")).isEqualTo("initialized");
+            context.getEnvironment().getPropertySources().remove("initialized");
+
+            // Property sources added before the context is refreshed are indexed once it is
+            context.getEnvironment().getPropertySources()
+                    .addAfter(PrecedenceIndexPropertySource.PRECEDENCE_INDEX_PROPERTY_SOURCE_NAME,
+                            new MapPropertySource("refreshing", Map.of("KEY1", "refreshing")));
+            context.refresh();
+            assertThat(first.getProperty("KEY1")).isEqualTo("refreshing");
+        } finally {
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.PRECEDENCE_INDEX_ENABLED_PROPERTY);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.metrics.StartupStep;
+
+import io.sysr.springcontext.env.configuration.SpringContextEnvApplicationContextInitializer;
+import io.sysr.springcontext.env.snapshot.SharedEnvSnapshot;
+
+class SharedEnvSnapshotTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void whenSnapshotIsPublished_thenItCanBeMappedAndLookedUp() throws IOException {
+        Path file = tempDir.resolve("env.snapshot");
+        SharedEnvSnapshot.publish(file, 42L, Map.of("KEY", "VALUE", "UNICODE", "价值", "EMPTY_LOOKUP", "x"));
+
+        Optional<SharedEnvSnapshot> snapshot = SharedEnvSnapshot.open(file, 42L);
+
+        assertThat(snapshot).isPresent();
+        assertThat(snapshot.get().size()).isEqualTo(3);
+        assertThat(snapshot.get().get("KEY")).isEqualTo("VALUE");
+        assertThat(snapshot.get().get("UNICODE")).isEqualTo("价值");
+        assertThat(snapshot.get().get("MISSING")).isNull();
+        assertThat(snapshot.get().asMap()).containsExactlyInAnyOrderEntriesOf(
+                Map.of("KEY", "VALUE", "UNICODE", "价值", "EMPTY_LOOKUP", "x"));
+    }
+
+    @Test
+    void whenFingerprintDiffers_thenSnapshotIsNotOpened() throws IOException {
+        Path file = tempDir.resolve("env.snapshot");
+        SharedEnvSnapshot.publish(file, 42L, Map.of("KEY", "VALUE"));
+
+        assertThat(SharedEnvSnapshot.open(file, 43L)).isEmpty();
+        assertThat(SharedEnvSnapshot.open(tempDir.resolve("missing.snapshot"), 42L)).isEmpty();
+    }
+
+    @Test
+    void whenFileIsNotASnapshot_thenSnapshotIsNotOpened() throws IOException {
+        Path file = tempDir.resolve("env.snapshot");
+        Files.writeString(file, "KEY=VALUE".repeat(20), StandardCharsets.UTF_8);
+
+        assertThat(SharedEnvSnapshot.open(file, 42L)).isEmpty();
+    }
+
+    @Test
+    void whenSnapshotIsRepublished_thenOpenedSnapshotsKeepTheirVersion() throws IOException {
+        Path file = tempDir.resolve("env.snapshot");
+        SharedEnvSnapshot.publish(file, 42L, Map.of("KEY", "VALUE"));
+        SharedEnvSnapshot snapshot = SharedEnvSnapshot.open(file, 42L).orElseThrow();
+
+        Map<String, String> larger = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            larger.put("KEY" + i, "VALUE" + i);
+        }
+        larger.put("KEY", "NEW");
+        SharedEnvSnapshot.publish(file, 42L, larger);
+        SharedEnvSnapshot.publish(tempDir.resolve("env.snapshot"), 43L, Map.of("KEY", "OTHER"));
+
+        assertThat(snapshot.get("KEY")).isEqualTo("VALUE");
+        assertThat(snapshot.get("KEY4999")).isNull();
+        assertThat(snapshot.size()).isEqualTo(1);
+        assertThat(SharedEnvSnapshot.open(file, 43L).orElseThrow().get("KEY")).isEqualTo("OTHER");
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    void whenSnapshotIsRepublishedConcurrently_thenReadersOnlySeeCompleteVersions() throws Exception {
+        Path file = tempDir.resolve("env.snapshot");
+        SharedEnvSnapshot.publish(file, 42L, version(0));
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger reads = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    SharedEnvSnapshot snapshot = SharedEnvSnapshot.open(file, 42L).orElseThrow();
+                    String version = snapshot.get("VERSION");
+                    assertThat(snapshot.get("KEY7")).isEqualTo("value7-" + version.substring(1));
+                    assertThat(snapshot.asMap()).containsEntry("VERSION", version);
+                    reads.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        for (int v = 1; v <= 200; v++) {
+            SharedEnvSnapshot.publish(file, 42L, version(v));
+        }
+        running.set(false);
+        reader.join();
+
+        assertThat(failure.get()).isNull();
+        assertThat(reads.get()).isPositive();
+        assertThat(SharedEnvSnapshot.open(file, 42L).orElseThrow().get("VERSION")).isEqualTo("v200");
+    }
+
+    @Test
+    void whenSnapshotIsPublished_thenItIsReadableByOtherUsers() throws IOException {
+        Path file = tempDir.resolve("env.snapshot");
+        SharedEnvSnapshot.publish(file, 42L, Map.of("KEY", "VALUE"));
+
+        assumeTrue(Files.getFileStore(file).supportsFileAttributeView(PosixFileAttributeView.class));
+        assertThat(Files.getPosixFilePermissions(file)).containsExactlyInAnyOrder(PosixFilePermission.OWNER_READ,
+                PosixFilePermission.OWNER_WRITE, PosixFilePermission.GROUP_READ, PosixFilePermission.OTHERS_READ);
+    }
+
+    @Test
+    void whenSharedSnapshotFileIsSet_thenTheInitializerPublishesAndMapsIt() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("springcontext-env"));
+        Files.writeString(envDir.resolve(".env"), "KEY1=VALUE1", StandardCharsets.UTF_8);
+        Path file = tempDir.resolve("env.snapshot");
+        System.setProperty("user.dir", envDir.toAbsolutePath().toString());
+        System.setProperty(SpringContextEnvApplicationContextInitializer.SHARED_SNAPSHOT_FILE_PROPERTY,
+                file.toString());
+        try {
+            for (String snapshot : List.of("loaded", "mapped")) {
+                BufferingApplicationStartup startup = new BufferingApplicationStartup(64);
+                try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+                    context.setApplicationStartup(startup);
+                    new SpringContextEnvApplicationContextInitializer().initialize(context);
+
+                    assertThat(context.getEnvironment().getProperty("key1")).isEqualTo("VALUE1");
+                }
+                assertThat(file).exists();
+                assertThat(startup.getBufferedTimeline().getEvents().stream()
+                        .filter(event -> event.getStartupStep().getName().equals("springcontext.env.load"))
+                        .flatMap(event -> StreamSupport.stream(event.getStartupStep().getTags().spliterator(), false))
+                        .filter(tag -> tag.getKey().equals("snapshot"))
+                        .map(StartupStep.Tag::getValue)).containsExactly(snapshot);
+            }
+        } finally {
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.SHARED_SNAPSHOT_FILE_PROPERTY);
+        }
+    }
+
+    @Test
+    void whenLoaderUsesASharedSnapshot_thenTheSecondLoaderMapsThePublishedSnapshot() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("env"));
+        Files.writeString(envDir.resolve(".env"), "HOST=sysr.io\nURL=https://${HOST}", StandardCharsets.UTF_8);
+        Path file = tempDir.resolve("env.snapshot");
+
+        EnvContextLoader publisher = new EnvContextLoader(envDir);
+        publisher.loadShared(file);
+        assertThat(file).exists();
+        long fingerprint = SharedEnvSnapshot.fingerprint(List.of(envDir.resolve(".env")));
+        assertThat(SharedEnvSnapshot.open(file, fingerprint)).isPresent();
+
+        EnvContextLoader reader = new EnvContextLoader(envDir);
+        reader.loadShared(file);
+
+        assertThat(reader.getProperty("URL")).isEqualTo("https://sysr.io");
+        assertThat(reader.getLoadedProperties()).hasSize(2).containsEntry("HOST", "sysr.io");
+    }
+
+    @Test
+    void whenEnvFilesChange_thenTheLoaderFallsBackToLoadingAndRepublishes() throws IOException {
+        Path envDir = Files.createDirectories(tempDir.resolve("env"));
+        Path envFile = envDir.resolve(".env");
+        Files.writeString(envFile, "KEY=old", StandardCharsets.UTF_8);
+        Path file = tempDir.resolve("env.snapshot");
+        new EnvContextLoader(envDir).loadShared(file);
+
+        Files.writeString(envFile, "KEY=new\nOTHER=value", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(envFile, FileTime.fromMillis(
+                Files.getLastModifiedTime(envFile).toMillis() + 10_000));
+        EnvContextLoader loader = new EnvContextLoader(envDir);
+        loader.loadShared(file);
+
+        assertThat(loader.getProperty("KEY")).isEqualTo("new");
+        assertThat(SharedEnvSnapshot.open(file, SharedEnvSnapshot.fingerprint(List.of(envFile))).orElseThrow()
+                .get("OTHER")).isEqualTo("value");
+    }
+
+    private static Map<String, String> version(int v) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("VERSION", "v" + v);
+        // Vary the size of the snapshot between versions
+        for (int i = 0; i < 10 + (v % 7) * 50; i++) {
+            properties.put("KEY" + i, "value" + i + "-" + v);
+        }
+        return properties;
+    }
+}
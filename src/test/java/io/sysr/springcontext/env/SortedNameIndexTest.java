@@ -0,0 +1,38 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.sysr.springcontext.env.store.SortedNameIndex;
+
+class SortedNameIndexTest {
+    private final SortedNameIndex index = SortedNameIndex.of(List.of("server.port", "database.url",
+            "database.user", "database", "databases.primary", "app.name", "database.url"));
+
+    @Test
+    void whenNamesAreIndexed_thenTheyAreSortedAndDistinct() {
+        assertThat(index.size()).isEqualTo(6);
+        assertThat(index.names()).containsExactly("app.name", "database", "database.url", "database.user",
+                "databases.primary", "server.port");
+        assertThat(index.contains("database.user")).isTrue();
+        assertThat(index.contains("database.pass")).isFalse();
+        assertThatThrownBy(() -> index.names().add("other")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void whenNamesAreQueriedByPrefix_thenOnlyTheMatchingNamesAreReturned() {
+        assertThat(index.withPrefix("database")).containsExactly("database", "database.url", "database.user",
+                "databases.primary");
+        assertThat(index.descendantsOf("database")).containsExactly("database.url", "database.user");
+        assertThat(index.descendantsOf("")).hasSize(6);
+        assertThat(index.withPrefix("zzz")).isEmpty();
+        assertThat(index.hasDescendants("database")).isTrue();
+        assertThat(index.hasDescendants("server.port")).isFalse();
+        assertThat(index.hasDescendants("app")).isTrue();
+        assertThat(SortedNameIndex.empty().hasDescendants("")).isFalse();
+    }
+}
@@ -1,22 +1,29 @@
 package io.sysr.springcontext.env;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Properties;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
 import org.springframework.context.ApplicationContextInitializer;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.PropertySource;
+import org.springframework.core.metrics.StartupStep;
 
+import io.sysr.springcontext.env.configuration.DotEnvAccessSnapshot;
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
 import io.sysr.springcontext.env.configuration.SpringContextEnvApplicationContextInitializer;
 
 class SpringContextEnvApplicationContextInitializerTest {
@@ -61,4 +68,64 @@ class SpringContextEnvApplicationContextInitializerTest {
         assertThat(environment.getProperty("KEY3")).isEqualTo("Some-VALUE1");
     }
 
-}
\ No newline at end of file
+    @Test
+    void whenAccessCountersAreEnabled_thenTheDotEnvPropertySourceCountsAccesses() {
+        System.setProperty(SpringContextEnvApplicationContextInitializer.ACCESS_COUNTERS_ENABLED_PROPERTY, "true");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            new SpringContextEnvApplicationContextInitializer().initialize(context);
+            context.refresh();
+
+            ConfigurableEnvironment environment = context.getEnvironment();
+            assertThat(environment.getProperty("key1")).isEqualTo("VALUE1");
+
+            DotEnvPropertySource propertySource = (DotEnvPropertySource) environment.getPropertySources()
+                    .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+            assertThat(propertySource).isNotNull();
+            DotEnvAccessSnapshot snapshot = propertySource.getAccessCounters().orElseThrow().snapshot();
+            assertThat(snapshot.hits()).containsEntry("KEY1", 1L);
+            assertThat(snapshot.unusedKeys()).contains("KEY2", "KEY3");
+        } finally {
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.ACCESS_COUNTERS_ENABLED_PROPERTY);
+        }
+    }
+
+    @Test
+    void whenContextHasABufferingApplicationStartup_thenTheInitializationIsRecordedAsASpringStep() {
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(64);
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.setApplicationStartup(startup);
+            new SpringContextEnvApplicationContextInitializer().initialize(context);
+
+            List<StartupStep> steps = startup.getBufferedTimeline().getEvents().stream()
+                    .map(StartupTimeline.TimelineEvent::getStartupStep)
+                    .toList();
+            StartupStep initializeStep = steps.stream()
+                    .filter(step -> step.getName().equals("springcontext.env.initialize"))
+                    .findFirst().orElseThrow();
+            StartupStep loadStep = steps.stream()
+                    .filter(step -> step.getName().equals("springcontext.env.load"))
+                    .findFirst().orElseThrow();
+
+            assertThat(initializeStep.getTags()).extracting(StartupStep.Tag::getKey, StartupStep.Tag::getValue)
+                    .contains(tuple("origin", "loaded"), tuple("keys", "3"));
+            assertThat(loadStep.getParentId()).isEqualTo(initializeStep.getId());
+        }
+    }
+
+    @Test
+    void whenDemandLoadingIsEnabled_thenOnlyTheRequiredKeysAreLoaded() {
+        System.setProperty(SpringContextEnvApplicationContextInitializer.DEMAND_LOADING_ENABLED_PROPERTY, "true");
+        System.setProperty(SpringContextEnvApplicationContextInitializer.DEMAND_LOADING_KEYS_PROPERTY, "key3");
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            new SpringContextEnvApplicationContextInitializer().initialize(context);
+
+            ConfigurableEnvironment environment = context.getEnvironment();
+            assertThat(environment.getProperty("KEY3")).isEqualTo("Some-VALUE1");
+            assertThat(environment.getProperty("KEY1")).isEqualTo("VALUE1");
+            assertThat(environment.containsProperty("KEY2")).isFalse();
+        } finally {
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.DEMAND_LOADING_ENABLED_PROPERTY);
+            System.clearProperty(SpringContextEnvApplicationContextInitializer.DEMAND_LOADING_KEYS_PROPERTY);
+        }
+    }
+}
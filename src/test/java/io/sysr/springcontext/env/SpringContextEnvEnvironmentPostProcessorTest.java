@@ -0,0 +1,118 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.configuration.SpringContextEnvApplicationContextInitializer;
+import io.sysr.springcontext.env.configuration.SpringContextEnvEnvironmentPostProcessor;
+
+class SpringContextEnvEnvironmentPostProcessorTest {
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createDirectories(tempDir.resolve("springcontext-env"));
+        String content = "KEY1=VALUE1\nKEY2=Some-${KEY1}";
+        Files.writeString(tempDir.resolve(".env"), content, StandardCharsets.UTF_8);
+        System.setProperty("user.dir", tempDir.toAbsolutePath().toString());
+    }
+
+    @Test
+    void whenEnvironmentIsPostProcessed_thenDotEnvPropertySourceIsAddedOnce() {
+        StandardEnvironment environment = new StandardEnvironment();
+        SpringContextEnvEnvironmentPostProcessor postProcessor = new SpringContextEnvEnvironmentPostProcessor();
+
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+        PropertySource<?> propertySource = environment.getPropertySources()
+                .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(propertySource).isInstanceOf(DotEnvPropertySource.class);
+        assertThat(environment.getPropertySources().get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME))
+                .isSameAs(propertySource);
+        assertThat(environment.getProperty("key2")).isEqualTo("Some-VALUE1");
+    }
+
+    @Test
+    void whenSpringApplicationRuns_thenDotEnvValuesAreAvailableBeforeTheContextIsCreated() {
+        AtomicReference<String> earlyValue = new AtomicReference<>();
+        AtomicReference<PropertySource<?>> earlySource = new AtomicReference<>();
+        SpringApplication application = new SpringApplication(EmptyConfiguration.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        application.addListeners(new EnvironmentPreparedListener(earlyValue, earlySource));
+
+        try (ConfigurableApplicationContext context = application.run()) {
+            assertThat(earlyValue.get()).isEqualTo("VALUE1");
+            // The initializer registered in spring.factories reuses the post-processed source
+            assertThat(context.getEnvironment().getPropertySources()
+                    .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME)).isSameAs(earlySource.get());
+            assertThat(context.getEnvironment().getProperty("KEY2")).isEqualTo("Some-VALUE1");
+        }
+    }
+
+    @Test
+    void whenChildContextIsInitialized_thenItInheritsTheParentPropertySource() {
+        try (AnnotationConfigApplicationContext parent = new AnnotationConfigApplicationContext();
+                AnnotationConfigApplicationContext child = new AnnotationConfigApplicationContext()) {
+            SpringContextEnvApplicationContextInitializer initializer = new SpringContextEnvApplicationContextInitializer();
+            initializer.initialize(parent);
+            parent.refresh();
+
+            child.setParent(parent);
+            initializer.initialize(child);
+            child.refresh();
+
+            PropertySource<?> parentSource = parent.getEnvironment().getPropertySources()
+                    .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME);
+            assertThat(parentSource).isNotNull();
+            assertThat(child.getEnvironment().getPropertySources()
+                    .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME)).isSameAs(parentSource);
+            assertThat(child.getEnvironment().getProperty("KEY1")).isEqualTo("VALUE1");
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class EmptyConfiguration {
+    }
+
+    /**
+     * Records the dotenv state of the environment as soon as it is prepared,
+     * before any application context exists.
+     */
+    private record EnvironmentPreparedListener(AtomicReference<String> value,
+            AtomicReference<PropertySource<?>> source)
+            implements ApplicationListener<ApplicationEnvironmentPreparedEvent>, Ordered {
+        @Override
+        public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+            value.set(event.getEnvironment().getProperty("KEY1"));
+            source.set(event.getEnvironment().getPropertySources()
+                    .get(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME));
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package io.sysr.springcontext.env;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.StandardEnvironment;
+
+import io.sysr.springcontext.env.configuration.DotEnvPropertySource;
+import io.sysr.springcontext.env.tenant.TenantEnvRegistry;
+
+class TenantEnvRegistryTest {
+    private static final long LARGE_BUDGET = 1024L * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (String tenant : List.of("acme", "globex", "initech")) {
+            Path tenantDir = Files.createDirectories(tempDir.resolve(tenant));
+            String content = "SHARED_KEY=shared-value\nDATABASE_URL=jdbc:h2:mem:" + tenant + "\n";
+            Files.writeString(tenantDir.resolve(".env"), content, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void whenTenantsAreUsed_thenEachIsLoadedLazilyIntoItsOwnPropertySource() {
+        TenantEnvRegistry registry = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+        assertThat(registry.isLoaded("acme")).isFalse();
+
+        DotEnvPropertySource acme = registry.getPropertySource("acme");
+        DotEnvPropertySource globex = registry.getPropertySource("globex");
+
+        assertThat(registry.isLoaded("acme")).isTrue();
+        assertThat(registry.isLoaded("initech")).isFalse();
+        assertThat(registry.getLoadedTenantCount()).isEqualTo(2);
+        assertThat(acme.getName()).isEqualTo(DotEnvPropertySource.DOTENV_PROPERTY_SOURCE_NAME + ":acme");
+        assertThat(acme.getProperty("DATABASE_URL")).isEqualTo("jdbc:h2:mem:acme");
+        assertThat(globex.getProperty("DATABASE_URL")).isEqualTo("jdbc:h2:mem:globex");
+        assertThat(registry.getProperty("globex", "database.url")).isEqualTo("jdbc:h2:mem:globex");
+        assertThat(registry.getPropertySource("acme")).isSameAs(acme);
+    }
+
+    @Test
+    void whenTenantsDefineTheSameKeysAndValues_thenTheStringsAreShared() {
+        TenantEnvRegistry registry = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+
+        DotEnvPropertySource acme = registry.getPropertySource("acme");
+        DotEnvPropertySource globex = registry.getPropertySource("globex");
+
+        String acmeKey = Arrays.stream(acme.getPropertyNames()).filter("SHARED_KEY"::equals).findFirst().orElseThrow();
+        String globexKey = Arrays.stream(globex.getPropertyNames()).filter("SHARED_KEY"::equals).findFirst()
+                .orElseThrow();
+        assertThat(acmeKey).isSameAs(globexKey);
+        assertThat(acme.getProperty("SHARED_KEY")).isSameAs(globex.getProperty("SHARED_KEY"));
+    }
+
+    @Test
+    void whenTenantsDefineTheSameKeys_thenTheirNamesAreSharedAndChargedOnce() {
+        TenantEnvRegistry probe = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+        probe.getPropertySource("acme");
+        long tenantSize = probe.getEstimatedMemoryUsage();
+        TenantEnvRegistry registry = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+
+        DotEnvPropertySource acme = registry.getPropertySource("acme");
+        DotEnvPropertySource globex = registry.getPropertySource("globex");
+
+        assertThat(acme.getNames()).isSameAs(globex.getNames());
+        assertThat(acme.getNameIndex()).isSameAs(globex.getNameIndex());
+        assertThat(globex.getProperty("database.url")).isEqualTo("jdbc:h2:mem:globex");
+        // Only the table of the second tenant and its own value are charged
+        assertThat(registry.getEstimatedMemoryUsage()).isLessThan(tenantSize + tenantSize / 2);
+    }
+
+    @Test
+    void whenATenantIsEvicted_thenTheStringsItSharesAreChargedUntilTheLastTenantUsingThemIsEvicted() {
+        TenantEnvRegistry probe = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+        probe.getPropertySource("globex");
+        long globexSize = probe.getEstimatedMemoryUsage();
+        TenantEnvRegistry registry = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+        registry.getPropertySource("acme");
+        registry.getPropertySource("globex");
+
+        registry.evict("acme");
+        assertThat(registry.getEstimatedMemoryUsage()).isEqualTo(globexSize);
+
+        registry.evict("globex");
+        assertThat(registry.getEstimatedMemoryUsage()).isZero();
+    }
+
+    @Test
+    void whenATenantDirectoryDoesNotExist_thenItIsRejectedAndNotCached() {
+        TenantEnvRegistry registry = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+
+        assertThatThrownBy(() -> registry.getPropertySource("acmee"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("acmee");
+        assertThat(registry.isLoaded("acmee")).isFalse();
+        assertThat(registry.getLoadedTenantCount()).isZero();
+        assertThat(registry.getEstimatedMemoryUsage()).isZero();
+    }
+
+    @Test
+    void whenMemoryBudgetIsExceeded_thenTheLeastRecentlyUsedTenantIsEvicted() {
+        TenantEnvRegistry probe = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+        probe.getPropertySource("acme");
+        long firstTenantSize = probe.getEstimatedMemoryUsage();
+        probe.getPropertySource("globex");
+        // The following tenants share the names and strings of the first one
+        long tenantSize = probe.getEstimatedMemoryUsage() - firstTenantSize;
+        long budget = firstTenantSize + tenantSize + tenantSize / 2;
+        // Room for two tenants, not three
+        TenantEnvRegistry registry = new TenantEnvRegistry(tempDir, budget);
+
+        DotEnvPropertySource acme = registry.getPropertySource("acme");
+        registry.getPropertySource("globex");
+        registry.getPropertySource("acme");
+        registry.getPropertySource("initech");
+
+        assertThat(registry.isLoaded("acme")).isTrue();
+        assertThat(registry.isLoaded("globex")).isFalse();
+        assertThat(registry.isLoaded("initech")).isTrue();
+        assertThat(registry.getEstimatedMemoryUsage()).isLessThanOrEqualTo(budget);
+
+        // An evicted tenant is loaded again on its next use
+        assertThat(registry.getProperty("globex", "DATABASE_URL")).isEqualTo("jdbc:h2:mem:globex");
+        assertThat(registry.isLoaded("acme")).isFalse();
+        assertThat(acme.getProperty("DATABASE_URL")).isEqualTo("jdbc:h2:mem:acme");
+    }
+
+    @Test
+    void whenATenantIsUsedConcurrently_thenItIsLoadedOnce() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        TenantEnvRegistry registry = new TenantEnvRegistry(tenantId -> {
+            loads.incrementAndGet();
+            return tempDir.resolve(tenantId);
+        }, LARGE_BUDGET);
+
+        List<Thread> workers = new ArrayList<>();
+        List<DotEnvPropertySource> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            workers.add(Thread.startVirtualThread(() -> {
+                DotEnvPropertySource propertySource = registry.getPropertySource("acme");
+                synchronized (results) {
+                    results.add(propertySource);
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(results).hasSize(16).allSatisfy(result -> assertThat(result).isSameAs(results.get(0)));
+    }
+
+    @Test
+    void whenTenantPropertySourceIsAddedToAnEnvironment_thenItsPropertiesAreResolved() {
+        TenantEnvRegistry registry = new TenantEnvRegistry(tempDir, LARGE_BUDGET);
+        StandardEnvironment environment = new StandardEnvironment();
+
+        environment.getPropertySources().addLast(registry.getPropertySource("initech"));
+
+        assertThat(environment.getProperty("database.url")).isEqualTo("jdbc:h2:mem:initech");
+        assertThat(environment.resolvePlaceholders("${SHARED_KEY}")).isEqualTo("shared-value");
+    }
+
+    @Test
+    void whenATenantIdEscapesTheTenantsDirectory_thenItIsRejected() throws IOException {
+        Path tenantsDir = Files.createDirectories(tempDir.resolve("tenants"));
+        Files.createDirectories(tenantsDir.resolve("acme"));
+        TenantEnvRegistry registry = new TenantEnvRegistry(tenantsDir, LARGE_BUDGET);
+
+        for (String tenantId : List.of("../acme", "..", ".", "", "acme/../globex", "a\\b",
+                tempDir.resolve("globex").toString())) {
+            assertThatThrownBy(() -> registry.getPropertySource(tenantId))
+                    .as(tenantId)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(registry.getLoadedTenantCount()).isZero();
+        assertThat(registry.getPropertySource("acme").getPropertyNames()).isEmpty();
+    }
+}